@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * 为{@code @ChangeMask}注解的数据模型生成字段变化掩码比较器{@code 类名_ChangeMask}
+ * <p>
+ * 生成的比较器逐个比较字段(包括父类字段), 不使用反射
+ */
+@SupportedAnnotationTypes(ChangeMaskProcessor.CHANGE_MASK)
+public class ChangeMaskProcessor extends AbstractProcessor {
+
+    static final String CHANGE_MASK = "com.drake.brv.annotaion.ChangeMask";
+    private static final String IGNORE = CHANGE_MASK + ".Ignore";
+    private static final String COMPARATOR = "com.drake.brv.listener.ChangeMaskComparator";
+    private static final String SUFFIX = "_ChangeMask";
+    private static final String INSTANCE = "INSTANCE";
+
+    /** 掩码为long, 最多支持64个字段 */
+    private static final int MAX_FIELDS = 64;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    error(element, "@ChangeMask只能注解类");
+                    continue;
+                }
+                try {
+                    generate((TypeElement) element);
+                } catch (IOException e) {
+                    error(element, "生成" + element.getSimpleName() + SUFFIX + "失败: " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        if (type.getModifiers().contains(Modifier.PRIVATE)) {
+            error(type, "@ChangeMask注解的类不能为private");
+            return;
+        }
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        List<VariableElement> fields = collectFields(type);
+        if (fields.size() > MAX_FIELDS) {
+            error(type, "@ChangeMask最多支持" + MAX_FIELDS + "个字段, 请使用@ChangeMask.Ignore排除不需要比较的字段");
+            return;
+        }
+
+        String modelName = type.getQualifiedName().toString();
+        String className = generatedName(type);
+        StringBuilder constants = new StringBuilder();
+        StringBuilder comparisons = new StringBuilder();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < fields.size(); i++) {
+            VariableElement field = fields.get(i);
+            String accessor = accessor(type, field, packageName);
+            if (accessor == null) {
+                error(field, "字段" + field.getSimpleName() + "为private且没有getter, 请使用@ChangeMask.Ignore排除");
+                return;
+            }
+            String name = constantName(field.getSimpleName().toString());
+            if (name.equals(INSTANCE) || names.contains(name)) {
+                error(field, "字段" + field.getSimpleName() + "对应的掩码常量" + name + "重复, 请使用@ChangeMask.Ignore排除");
+                return;
+            }
+            names.add(name);
+            constants.append("    public static final long ").append(name).append(" = 1L << ").append(i).append(";\n");
+            comparisons.append("        if (").append(changed(field, "oldItem." + accessor, "newItem." + accessor))
+                    .append(") mask |= ").append(name).append(";\n");
+        }
+
+        String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            if (!packageName.isEmpty()) writer.write("package " + packageName + ";\n\n");
+            writer.write("/**\n * 由BRV注解处理器为{@link " + modelName + "}生成, 请勿修改\n */\n");
+            writer.write("@SuppressWarnings({\"rawtypes\", \"unchecked\"})\n");
+            writer.write("public final class " + className + " implements " + COMPARATOR + "<" + modelName + "> {\n\n");
+            writer.write(constants.toString());
+            writer.write("\n    public static final " + className + " " + INSTANCE + " = new " + className + "();\n\n");
+            writer.write("    private " + className + "() {\n    }\n\n");
+            writer.write("    @Override\n");
+            writer.write("    public Class<" + modelName + "> getModelClass() {\n");
+            writer.write("        return " + modelName + ".class;\n    }\n\n");
+            writer.write("    @Override\n");
+            writer.write("    public long changedFields(" + modelName + " oldItem, " + modelName + " newItem) {\n");
+            writer.write("        long mask = 0L;\n");
+            writer.write(comparisons.toString());
+            writer.write("        return mask;\n    }\n}\n");
+        }
+    }
+
+    /**
+     * 按父类到子类的顺序收集需要比较的字段, 忽略静态/transient/编译器生成的字段以及框架类中的字段
+     */
+    private List<VariableElement> collectFields(TypeElement type) {
+        List<TypeElement> hierarchy = new ArrayList<>();
+        TypeElement current = type;
+        while (current != null && !isFramework(current)) {
+            hierarchy.add(0, current);
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+        }
+        List<VariableElement> fields = new ArrayList<>();
+        for (TypeElement element : hierarchy) {
+            for (VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) continue;
+                if (field.getSimpleName().toString().contains("$") || hasAnnotation(field, IGNORE)) continue;
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private boolean isFramework(TypeElement type) {
+        String name = type.getQualifiedName().toString();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("android.")
+                || name.startsWith("androidx.") || name.startsWith("kotlin.");
+    }
+
+    private boolean hasAnnotation(Element element, String annotation) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(annotation)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 生成类中读取字段的表达式, 字段无法访问时使用getter(包括Kotlin属性生成的getter)
+     *
+     * @return null表示字段无法访问
+     */
+    private String accessor(TypeElement type, VariableElement field, String packageName) {
+        String name = field.getSimpleName().toString();
+        if (isAccessible(field, packageName)) return name;
+        String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        List<String> getters = new ArrayList<>();
+        // Kotlin中以is开头的属性getter与属性同名
+        if (name.startsWith("is") && name.length() > 2 && Character.isUpperCase(name.charAt(2))) getters.add(name);
+        getters.add("get" + capitalized);
+        getters.add("is" + capitalized);
+        List<? extends Element> members = processingEnv.getElementUtils().getAllMembers(type);
+        for (String getter : getters) {
+            for (ExecutableElement method : ElementFilter.methodsIn(members)) {
+                if (method.getSimpleName().contentEquals(getter) && method.getParameters().isEmpty()
+                        && !method.getModifiers().contains(Modifier.STATIC) && isAccessible(method, packageName)) {
+                    return getter + "()";
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isAccessible(Element element, String packageName) {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) return false;
+        if (modifiers.contains(Modifier.PUBLIC)) return true;
+        String elementPackage = processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+        return elementPackage.equals(packageName);
+    }
+
+    /**
+     * 字段不相等的判断表达式, 浮点数使用compare以正确比较NaN, 数组比较元素
+     */
+    private String changed(VariableElement field, String oldValue, String newValue) {
+        switch (field.asType().getKind()) {
+            case FLOAT:
+                return "Float.compare(" + oldValue + ", " + newValue + ") != 0";
+            case DOUBLE:
+                return "Double.compare(" + oldValue + ", " + newValue + ") != 0";
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case CHAR:
+                return oldValue + " != " + newValue;
+            case ARRAY:
+                return "!java.util.Arrays.equals(" + oldValue + ", " + newValue + ")";
+            default:
+                return "!java.util.Objects.equals(" + oldValue + ", " + newValue + ")";
+        }
+    }
+
+    /**
+     * 嵌套类的生成类名包含外部类名, 例如Outer.Inner生成Outer_Inner_ChangeMask
+     */
+    private String generatedName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing instanceof TypeElement) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.append(SUFFIX).toString();
+    }
+
+    /**
+     * 驼峰命名转为常量命名, 例如avatarUrl转为AVATAR_URL
+     */
+    private String constantName(String name) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c) && i > 0 && !Character.isUpperCase(name.charAt(i - 1))) builder.append('_');
+            builder.append(Character.toUpperCase(c));
+        }
+        return builder.toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -25,6 +25,8 @@ import android.os.Handler
 import android.os.Looper
 import android.util.Log
 import android.util.NoSuchPropertyException
+import android.util.SparseArray
+import android.util.SparseIntArray
 import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
@@ -33,20 +35,33 @@ import androidx.annotation.IntRange
 import androidx.annotation.LayoutRes
 import androidx.databinding.DataBindingUtil
 import androidx.databinding.ViewDataBinding
-import androidx.recyclerview.widget.DiffUtil
+import androidx.recyclerview.widget.AdapterListUpdateCallback
 import androidx.recyclerview.widget.ItemTouchHelper
 import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.ListUpdateCallback
 import androidx.recyclerview.widget.RecyclerView
 import androidx.recyclerview.widget.RecyclerView.NO_ID
 import com.drake.brv.animation.*
+import com.drake.brv.collection.CheckedPositionList
+import com.drake.brv.collection.ItemTypeCounter
+import com.drake.brv.collection.LongHashSet
+import com.drake.brv.collection.LayoutType
+import com.drake.brv.collection.ListUpdateRecorder
+import com.drake.brv.collection.LiveModels
+import com.drake.brv.collection.PagedModels
+import com.drake.brv.collection.PositionBitSet
+import com.drake.brv.collection.TypePool
 import com.drake.brv.annotaion.AnimationType
 import com.drake.brv.item.*
 import com.drake.brv.listener.*
+import com.drake.brv.pool.InflatePool
+import com.drake.brv.pool.SharedViewPool
 import com.drake.brv.utils.BRV
 import com.drake.brv.utils.setDifferModels
 import java.lang.reflect.Modifier
+import java.util.IdentityHashMap
 import java.util.concurrent.*
-import kotlin.math.min
+import java.util.concurrent.atomic.AtomicInteger
 
 /**
  * < Android上最强大的RecyclerView框架 >
@@ -106,6 +121,15 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
                 false
             }
         }
+
+        /** 主线程刷新列表 */
+        private val mainHandler by lazy { Handler(Looper.getMainLooper()) }
+
+        /** [RecyclerView.RecycledViewPool]默认每种类型的缓存数量 */
+        private const val DEFAULT_MAX_SCRAP = 5
+
+        /** 类型缓存中表示未添加该数据类型 */
+        private val NO_TYPE = Any()
     }
 
 
@@ -137,6 +161,10 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
      * 增量更新回调
      * 当你使用[notifyItemChanged(int, Object)]或者[notifyItemRangeChanged(int, Object)]等方法更新列表时才会触发, 并且形参payload要求不能为null
      *
+     * 同一条目在绑定前收到多个payload时会先合并, 无法合并的payload按发送顺序依次回调
+     * 1. 同一类型的[MergeablePayload]合并为一个, 例如[PayloadMask]按位或合并为变化字段的并集
+     * 2. 连续相等的payload只保留一个, Int/Long等其他payload不会合并
+     *
      * @param block 形参model即为[notifyItemChanged]中的形参payload
      */
     fun onPayload(block: BindingViewHolder.(model: Any) -> Unit) {
@@ -155,7 +183,17 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
     private var context: Context? = null
 
     override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): BindingViewHolder {
-        val vh = if (dataBindingEnable) {
+        val inflatedView = inflatePool?.obtain(viewType)
+        val vh = if (inflatedView != null) {
+            val viewDataBinding = if (dataBindingEnable) {
+                try {
+                    DataBindingUtil.bind<ViewDataBinding>(inflatedView)
+                } catch (e: IllegalArgumentException) {
+                    null
+                }
+            } else null
+            if (viewDataBinding == null) BindingViewHolder(inflatedView) else BindingViewHolder(viewDataBinding)
+        } else if (dataBindingEnable) {
             val viewDataBinding = DataBindingUtil.inflate<ViewDataBinding>(
                 LayoutInflater.from(parent.context),
                 viewType,
@@ -170,6 +208,7 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         } else {
             BindingViewHolder(parent.getView(viewType))
         }
+        vh.setupClickListeners(viewType)
         onCreate?.invoke(vh, viewType)
         return vh
     }
@@ -179,6 +218,8 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
     }
 
     override fun onBindViewHolder(holder: BindingViewHolder, position: Int) {
+        (_data as? PagedModels)?.loadAround(position - headerCount)
+        if (holder.adapter !== this) holder.reattach(this)
         holder.bind(getModel(position))
     }
 
@@ -187,26 +228,37 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         position: Int,
         payloads: MutableList<Any>,
     ) {
-        if (payloads.isNotEmpty() && onPayload != null) {
-            onPayload?.invoke(holder, payloads[0])
+        // 仅为刷新分割线间距, 条目内容没有变化
+        if (payloads.isNotEmpty() && payloads.all { it === DefaultDecoration.EDGE_CHANGED }) return
+        val onPayload = onPayload
+        // 占位数据替换为分页数据, 需要完整绑定但不执行替换动画
+        if (payloads.isNotEmpty() && onPayload != null && PagedModels.PAGE_CHANGED !in payloads) {
+            if (payloads.size == 1) {
+                onPayload.invoke(holder, payloads[0])
+            } else {
+                val merged = mergedPayloads
+                merged.clear()
+                mergePayloads(payloads, merged)
+                for (payload in merged) if (payload !== DefaultDecoration.EDGE_CHANGED) onPayload.invoke(holder, payload)
+                merged.clear()
+            }
         } else {
             super.onBindViewHolder(holder, position, payloads)
         }
     }
 
-    override fun getItemViewType(position: Int): Int {
+    /** 合并payload时复用的集合 */
+    private val mergedPayloads = ArrayList<Any>()
 
+    override fun getItemViewType(position: Int): Int {
         val model = getModel<Any>(position)
         val modelClass: Class<*> = model.javaClass
-        return (typePool[modelClass]?.invoke(model, position) ?: interfacePool?.run {
-            for (interfaceType in this) {
-                if (interfaceType.key.isAssignableFrom(modelClass)) {
-                    return@run interfaceType.value.invoke(model, position)
-                }
-            }
-            null
+        val type = typeCache[modelClass] ?: resolveType(modelClass).also { typeCache[modelClass] = it }
+        return when {
+            type is Int -> type
+            type === NO_TYPE -> throw NoSuchPropertyException("please add item model type : addType<${modelClass.name}>(R.layout.item)")
+            else -> (type as Any.(Int) -> Int).invoke(model, position)
         }
-        ?: throw NoSuchPropertyException("please add item model type : addType<${model.javaClass.name}>(R.layout.item)"))
     }
 
     override fun getItemCount(): Int {
@@ -219,6 +271,29 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
             context = recyclerView.context
         }
         itemTouchHelper?.attachToRecyclerView(recyclerView)
+        if (!dataObserved) {
+            registerAdapterDataObserver(dataObserver)
+            dataObserved = true
+            invalidateGroupIndex()
+        }
+        (_data as? PagedModels)?.registerComponentCallbacks(recyclerView.context)
+        inflatePool?.attach(recyclerView)
+        if (sharedPoolEnabled) {
+            recyclerView.setRecycledViewPool(SharedViewPool.get(recyclerView.context))
+        }
+        for (index in 0 until poolSizes.size()) {
+            recyclerView.recycledViewPool.setMaxRecycledViews(poolSizes.keyAt(index), poolSizes.valueAt(index))
+        }
+        if (prewarmCount > 0) schedulePrewarm()
+    }
+
+    override fun onDetachedFromRecyclerView(recyclerView: RecyclerView) {
+        if (dataObserved) {
+            unregisterAdapterDataObserver(dataObserver)
+            dataObserved = false
+        }
+        (_data as? PagedModels)?.unregisterComponentCallbacks()
+        inflatePool?.detach()
     }
 
     override fun onViewAttachedToWindow(holder: BindingViewHolder) {
@@ -228,20 +303,202 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
             lastPosition = layoutPosition
         }
         holder.getModelOrNull<ItemAttached>()?.onViewAttachedToWindow(holder)
+        val viewType = holder.itemViewType
+        val attachedCount = attachedCounts.get(viewType) + 1
+        attachedCounts.put(viewType, attachedCount)
+        if (adaptivePoolEnabled) growPool(viewType, attachedCount)
     }
 
     override fun onViewDetachedFromWindow(holder: BindingViewHolder) {
         holder.getModelOrNull<ItemAttached>()?.onViewDetachedFromWindow(holder)
+        val viewType = holder.itemViewType
+        attachedCounts.put(viewType, maxOf(0, attachedCounts.get(viewType) - 1))
+    }
+
+    /** 仅在被RecyclerView使用期间监听, 避免影响[setHasStableIds] */
+    private var dataObserved = false
+
+    /**
+     * 监听当前Adapter的数据变化, 同步依赖position的索引
+     * 任何数据变化都要求调用notify**()函数, 所以无论是内部函数还是开发者修改[models]都会被监听到
+     */
+    private val dataObserver = object : RecyclerView.AdapterDataObserver() {
+        override fun onChanged() {
+            dataVersion++
+            invalidateGroupIndex()
+            itemTypeCounter.invalidate()
+            if (stableIdCheckedEnabled) {
+                checkedSet.clear()
+                restoreCheckedIds()
+            }
+        }
+
+        override fun onItemRangeChanged(positionStart: Int, itemCount: Int) {
+            dataVersion++
+            changeGroupIndex(positionStart, itemCount)
+            itemTypeCounter.change(positionStart, itemCount) { getItemViewType(it) }
+            if (!batchCommitting) restoreCheckedIds(positionStart, itemCount)
+        }
+
+        override fun onItemRangeChanged(positionStart: Int, itemCount: Int, payload: Any?) {
+            // 仅刷新分割线间距, 数据没有变化
+            if (payload === DefaultDecoration.EDGE_CHANGED) return
+            onItemRangeChanged(positionStart, itemCount)
+        }
+
+        override fun onItemRangeInserted(positionStart: Int, itemCount: Int) {
+            dataVersion++
+            insertGroupIndex(positionStart, itemCount)
+            checkedSet.insert(positionStart, itemCount)
+            itemTypeCounter.insert(positionStart, itemCount) { getItemViewType(it) }
+            if (!batchCommitting) restoreCheckedIds(positionStart, itemCount)
+        }
+
+        override fun onItemRangeRemoved(positionStart: Int, itemCount: Int) {
+            dataVersion++
+            removeGroupIndex(positionStart, itemCount)
+            checkedSet.delete(positionStart, itemCount)
+            itemTypeCounter.remove(positionStart, itemCount)
+        }
+
+        override fun onItemRangeMoved(fromPosition: Int, toPosition: Int, itemCount: Int) {
+            dataVersion++
+            invalidateGroupIndex()
+            checkedSet.move(fromPosition, toPosition)
+            itemTypeCounter.move(fromPosition, toPosition)
+        }
+    }
+
+    // </editor-fold>
+
+
+    // <editor-fold desc="预创建">
+
+    private var inflatePool: InflatePool? = null
+
+    /**
+     * 在子线程预先创建指定布局的视图, [onCreateViewHolder]时直接使用, 使用后在子线程补充
+     * 避免首次快速滑动到复杂布局时在主线程创建视图导致掉帧, 未命中时依然同步创建
+     * 布局在子线程创建失败(例如包含必须在主线程创建的View)时自动改为同步创建
+     *
+     * @param layout 布局Id, 即[addType]添加的布局
+     * @param count 保持预创建的视图数量, 0表示停止预创建
+     */
+    fun preInflate(@LayoutRes layout: Int, count: Int = 2) {
+        val inflatePool = inflatePool ?: InflatePool().also {
+            inflatePool = it
+            if (dataObserved) rv?.let { rv -> it.attach(rv) }
+        }
+        inflatePool.setTarget(layout, count)
+    }
+    // </editor-fold>
+
+
+    // <editor-fold desc="复用池">
+
+    /**
+     * 根据每种类型同时显示在屏幕上的最大数量自动增大[RecyclerView.RecycledViewPool]的缓存数量
+     * 默认每种类型只缓存5个, 同屏显示数量超过该值的类型快速滑动时会反复创建
+     */
+    var adaptivePoolEnabled = true
+
+    /**
+     * 使用[SharedViewPool]中按Context共享的复用池, 相同布局的ViewHolder可以在多个列表之间复用
+     * 适用于嵌套列表(例如纵向列表的每个条目都是一个横向列表)或者多个页面中使用相同条目布局的列表
+     * 需要在被设置给RecyclerView之前启用, 例如在[com.drake.brv.utils.setup]中
+     */
+    var sharedPoolEnabled = false
+
+    /** 每种类型当前显示在屏幕上的数量 */
+    private val attachedCounts = SparseIntArray()
+
+    /** 已调整的每种类型缓存数量 */
+    private val poolSizes = SparseIntArray()
+
+    private var prewarmCount = 0
+
+    /**
+     * 主线程空闲时为[addType]添加的固定布局类型预先创建ViewHolder放入复用池, 首次滑动时无需创建
+     * 每次空闲只创建一个, 避免阻塞主线程. 通过函数参数返回布局的类型([addType]的函数参数)无法预知布局, 不会预创建
+     * @param count 每种类型预创建的数量
+     */
+    fun prewarm(count: Int = DEFAULT_MAX_SCRAP) {
+        prewarmCount = count
+        if (dataObserved) schedulePrewarm()
+    }
+
+    /** 等待预创建的布局, 空闲回调每次从头部取出一个 */
+    private val prewarmLayouts = ArrayDeque<Int>()
+
+    /** 是否已经添加了空闲回调, 每个Adapter同时只保留一个 */
+    private var prewarmPending = false
+
+    private fun schedulePrewarm() {
+        if (rv == null) return
+        prewarmLayouts.clear()
+        (typePool.values + interfacePool?.values.orEmpty()).forEach {
+            if (it is LayoutType && it.layout !in prewarmLayouts) prewarmLayouts.add(it.layout)
+        }
+        if (prewarmPending) return
+        prewarmPending = true
+        Looper.myQueue().addIdleHandler {
+            val rv = rv
+            val layout = prewarmLayouts.firstOrNull()
+            if (rv == null || !dataObserved || layout == null) {
+                prewarmPending = false
+                return@addIdleHandler false
+            }
+            val count = prewarmCount
+            val pool = rv.recycledViewPool
+            growPool(layout, count)
+            if (pool.getRecycledViewCount(layout) < count) {
+                pool.putRecycledView(createViewHolder(rv, layout))
+            } else prewarmLayouts.removeFirst()
+            prewarmPending = prewarmLayouts.isNotEmpty()
+            prewarmPending
+        }
     }
 
+    /**
+     * 增大指定类型的缓存数量, 不会减小
+     */
+    private fun growPool(viewType: Int, count: Int) {
+        if (count <= poolSizes.get(viewType, DEFAULT_MAX_SCRAP)) return
+        poolSizes.put(viewType, count)
+        rv?.recycledViewPool?.setMaxRecycledViews(viewType, count)
+    }
     // </editor-fold>
 
 
     // <editor-fold desc="多类型">
 
     /** 类型池 */
-    val typePool = mutableMapOf<Class<*>, Any.(Int) -> Int>()
+    val typePool: MutableMap<Class<*>, Any.(Int) -> Int> = TypePool { typeCache.clear() }
+
+    /** 接口类型池, 直接赋值的集合后续被修改时不会清除类型缓存, 请使用[addInterfaceType] */
     var interfacePool: MutableMap<Class<*>, Any.(Int) -> Int>? = null
+        set(value) {
+            field = value
+            typeCache.clear()
+        }
+
+    /**
+     * 数据类型已解析的类型缓存, 值为以下之一
+     * 1. 固定布局Id
+     * 2. 类型函数
+     * 3. [NO_TYPE] 未添加该类型
+     */
+    private val typeCache = IdentityHashMap<Class<*>, Any>()
+
+    /**
+     * 依次从[typePool]/[interfacePool]中查找数据类型对应的类型
+     */
+    private fun resolveType(modelClass: Class<*>): Any {
+        val type = typePool[modelClass] ?: interfacePool?.entries?.firstOrNull {
+            it.key.isAssignableFrom(modelClass)
+        }?.value ?: return NO_TYPE
+        return if (type is LayoutType) type.layout else type
+    }
 
     /**
      * 添加多类型
@@ -250,9 +507,9 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
      */
     inline fun <reified M> addType(@LayoutRes layout: Int) {
         if (Modifier.isInterface(M::class.java.modifiers)) {
-            M::class.java.addInterfaceType { layout }
+            M::class.java.addInterfaceType(LayoutType(layout))
         } else {
-            typePool[M::class.java] = { layout }
+            typePool[M::class.java] = LayoutType(layout)
         }
     }
 
@@ -274,7 +531,7 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
      * @see addType
      */
     fun Class<*>.addInterfaceType(block: Any.(Int) -> Int) {
-        (interfacePool ?: mutableMapOf<Class<*>, Any.(Int) -> Int>().also {
+        (interfacePool ?: TypePool { typeCache.clear() }.also {
             interfacePool = it
         })[this] = block
     }
@@ -292,7 +549,7 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
             field = value
         }
 
-    /** 防抖动点击事件的间隔时间, 单位毫秒 */
+    /** 防抖动点击事件的间隔时间, 单位毫秒. 每个视图单独计算间隔, 不同条目的相同Id视图互不影响 */
     var clickThrottle: Long = BRV.clickThrottle
 
     /** 防抖动点击事件的间隔时间, 单位毫秒. 本函数已废弃 */
@@ -356,6 +613,7 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         for (i in id) {
             clickListeners[i] = Pair(block, false)
         }
+        clickTargets.clear()
         onClick = block
     }
 
@@ -366,6 +624,7 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         for (i in id) {
             clickListeners[i] = Pair(block, true)
         }
+        clickTargets.clear()
         onClick = block
     }
 
@@ -376,6 +635,7 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         for (i in id) {
             longClickListeners[i] = block
         }
+        clickTargets.clear()
         onLongClick = block
     }
 
@@ -384,6 +644,7 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
      */
     fun @receiver:IdRes Int.onClick(listener: BindingViewHolder.(viewId: Int) -> Unit) {
         clickListeners[this] = Pair(listener, false)
+        clickTargets.clear()
     }
 
     /**
@@ -391,6 +652,7 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
      */
     fun @receiver:IdRes Int.onFastClick(listener: BindingViewHolder.(viewId: Int) -> Unit) {
         clickListeners[this] = Pair(listener, true)
+        clickTargets.clear()
     }
 
     /**
@@ -398,6 +660,73 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
      */
     fun @receiver:IdRes Int.onLongClick(listener: BindingViewHolder.(viewId: Int) -> Unit) {
         longClickListeners[this] = listener
+        clickTargets.clear()
+    }
+
+    /**
+     * 每种类型中监听点击事件的视图, 同一类型的ViewHolder按子视图索引路径直接查找, 无需每次遍历视图树
+     */
+    private val clickTargets = SparseArray<Array<ClickTarget>>()
+
+    /**
+     * @param path 从itemView开始每层的子视图索引
+     */
+    private class ClickTarget(val id: Int, val path: IntArray, val click: Boolean, val longClick: Boolean) {
+
+        fun find(itemView: View): View? {
+            var view = itemView
+            for (index in path) {
+                view = (view as? ViewGroup)?.getChildAt(index) ?: return itemView.findViewById(id)
+            }
+            return if (view.id == id) view else itemView.findViewById(id)
+        }
+    }
+
+    /**
+     * 返回指定类型中监听点击事件的视图, 首次通过该类型的[itemView]查找并记录其索引路径
+     */
+    private fun findClickTargets(itemView: View, viewType: Int): Array<ClickTarget> {
+        clickTargets[viewType]?.let { return it }
+        val targets = ArrayList<ClickTarget>()
+        for (id in clickListeners.keys + longClickListeners.keys) {
+            val view = itemView.findViewById<View>(id) ?: continue
+            val path = ArrayList<Int>()
+            var child = view
+            while (child !== itemView) {
+                val parent = child.parent as? ViewGroup ?: break
+                path.add(parent.indexOfChild(child))
+                child = parent
+            }
+            path.reverse()
+            targets.add(ClickTarget(id, path.toIntArray(), id in clickListeners, id in longClickListeners))
+        }
+        return targets.toTypedArray().also { clickTargets.put(viewType, it) }
+    }
+
+    /**
+     * 全部条目共用的点击/长按事件监听器, 根据视图查找所在的ViewHolder后分发
+     */
+    private val itemClickListener = object : View.OnClickListener, View.OnLongClickListener {
+
+        override fun onClick(v: View) {
+            val holder = rv?.findContainingViewHolder(v) as? BindingViewHolder ?: return
+            val clickListener = clickListeners[v.id] ?: return
+            if (!clickListener.second) {
+                // 每个视图单独防抖, 不同条目的相同视图互不影响
+                val currentTime = System.currentTimeMillis()
+                val lastTime = v.getTag(R.id.brv_click_time) as? Long ?: 0L
+                if (currentTime - lastTime <= clickThrottle) return
+                v.setTag(R.id.brv_click_time, currentTime)
+            }
+            (clickListener.first ?: onClick)?.invoke(holder, v.id)
+        }
+
+        override fun onLongClick(v: View): Boolean {
+            val holder = rv?.findContainingViewHolder(v) as? BindingViewHolder ?: return false
+            if (!longClickListeners.containsKey(v.id)) return false
+            (longClickListeners[v.id] ?: onLongClick)?.invoke(holder, v.id)
+            return true
+        }
     }
 
     // </editor-fold>
@@ -443,7 +772,7 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
     var headers: List<Any?> = mutableListOf()
         set(value) {
             field = value.toMutableList()
-            notifyDataSetChanged()
+            dispatchDataSetChanged()
         }
 
     /** 头布局数量 */
@@ -459,13 +788,13 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
 
         if (index == -1) {
             (headers as MutableList).add(0, model)
-            if (animation) notifyItemInserted(0)
+            if (animation) updateCallback.onInserted(0, 1)
         } else if (index <= headerCount) {
             (headers as MutableList).add(index, model)
-            if (animation) notifyItemInserted(index)
+            if (animation) updateCallback.onInserted(index, 1)
         }
 
-        if (!animation) notifyDataSetChanged()
+        if (!animation) dispatchDataSetChanged()
     }
 
     /**
@@ -477,8 +806,8 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
 
             (headers as MutableList).remove(model)
             if (animation) {
-                notifyItemRemoved(headerIndex)
-            } else notifyDataSetChanged()
+                updateCallback.onRemoved(headerIndex, 1)
+            } else dispatchDataSetChanged()
         }
     }
 
@@ -488,14 +817,14 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
     fun removeHeaderAt(@IntRange(from = 0) index: Int = 0, animation: Boolean = false) {
         if (headerCount <= 0 || headerCount < index) return
         (headers as MutableList).removeAt(index)
-        if (animation) notifyItemRemoved(index) else notifyDataSetChanged()
+        if (animation) updateCallback.onRemoved(index, 1) else dispatchDataSetChanged()
     }
 
     fun clearHeader(animation: Boolean = false) {
         if (headers.isNotEmpty()) {
             val headerCount = this.headerCount
             (headers as MutableList).clear()
-            if (animation) notifyItemRangeRemoved(0, headerCount) else notifyDataSetChanged()
+            if (animation) updateCallback.onRemoved(0, headerCount) else dispatchDataSetChanged()
         }
     }
 
@@ -517,7 +846,7 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         set(value) {
 
             field = value.toMutableList()
-            notifyDataSetChanged()
+            dispatchDataSetChanged()
 
             if (isFirst) {
                 lastPosition = -1
@@ -542,17 +871,17 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         if (index == -1) {
             (footers as MutableList).add(model)
             if (animation) {
-                notifyItemInserted(itemCount)
+                updateCallback.onInserted(itemCount, 1)
             }
         } else if (index <= footerCount) {
             (footers as MutableList).add(index, model)
             if (animation) {
-                notifyItemInserted(headerCount + modelCount + index)
+                updateCallback.onInserted(headerCount + modelCount + index, 1)
             }
         }
 
         if (!animation) {
-            notifyDataSetChanged()
+            dispatchDataSetChanged()
         }
     }
 
@@ -564,8 +893,8 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
             val footerIndex = headerCount + modelCount + footers.indexOf(model)
             (footers as MutableList).remove(model)
             if (animation) {
-                notifyItemRemoved(footerIndex)
-            } else notifyDataSetChanged()
+                updateCallback.onRemoved(footerIndex, 1)
+            } else dispatchDataSetChanged()
         }
     }
 
@@ -579,18 +908,18 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         if (index == -1) {
             (footers as MutableList).removeAt(0)
             if (animation) {
-                notifyItemRemoved(headerCount + modelCount)
+                updateCallback.onRemoved(headerCount + modelCount, 1)
             }
         } else {
             (footers as MutableList).removeAt(index)
 
             if (animation) {
-                notifyItemRemoved(headerCount + modelCount + index)
+                updateCallback.onRemoved(headerCount + modelCount + index, 1)
             }
         }
 
         if (!animation) {
-            notifyDataSetChanged()
+            dispatchDataSetChanged()
         }
     }
 
@@ -602,8 +931,8 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
             val footerCount = this.footerCount
             (footers as MutableList).clear()
             if (animation) {
-                notifyItemRangeRemoved(headerCount + modelCount, itemCount + footerCount)
-            } else notifyDataSetChanged()
+                updateCallback.onRemoved(headerCount + modelCount, footerCount)
+            } else dispatchDataSetChanged()
         }
     }
 
@@ -630,18 +959,32 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
     /**
      * 数据模型集合
      * 如果赋值的是[List]不可变集合将会自动被替换成[MutableList], 将无法保持为同一个集合对象引用
+     * 赋值[PagedModels]/[LiveModels]时不会被替换
      */
     var models: List<Any?>?
         get() = _data
         @SuppressLint("NotifyDataSetChanged")
         set(value) {
+            (_data as? PagedModels)?.let {
+                it.adapter = null
+                it.unregisterComponentCallbacks()
+            }
+            (_data as? LiveModels)?.adapter = null
             _data = when (value) {
+                is PagedModels -> value.also {
+                    it.adapter = this
+                    if (dataObserved) it.registerComponentCallbacks(rv?.context)
+                }
+                is LiveModels -> value.also { it.adapter = this }
                 is ArrayList -> flat(value)
                 is List -> flat(value.toMutableList())
                 else -> null
             }
-            notifyDataSetChanged()
-            checkedPosition.clear()
+            dispatchDataSetChanged()
+            if (!stableIdCheckedEnabled || !dataObserved) {
+                checkedSet.clear()
+                restoreCheckedIds()
+            }
             if (isFirst) {
                 lastPosition = -1
                 isFirst = false
@@ -653,10 +996,27 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
     /** 对比新旧数据更改列表接口 */
     var itemDifferCallback: ItemDifferCallback = ItemDifferCallback
 
+    /**
+     * 对比数据的算法, 默认[MyersDiffStrategy]
+     * @see MyersDiffStrategy 动画最精确
+     * @see HeckelDiffStrategy 数据量很大且差异很多时依然保持线性耗时, 要求[itemDifferCallback]实现[ItemHashCallback]
+     * @see AutoDiffStrategy 根据数据量自动选择
+     */
+    var diffStrategy: DiffStrategy = MyersDiffStrategy
+
+    private var onDiffComputed: ((computeTime: Long) -> Unit)? = null
+
+    /** 每次对比数据递增, 只有最新一次对比的结果才会刷新列表 */
+    private val differGeneration = AtomicInteger()
+
+    /** 监听到的数据变化次数, 用于判断对比期间数据是否被其他方式修改 */
+    @Volatile
+    private var dataVersion = 0
+
     /**
      * 对比数据, 根据数据差异自动刷新列表
      * 数据对比默认使用`equals`函数对比, 你可以为数据手动实现equals函数来修改对比逻辑. 推荐定义数据为 data class, 因其会根据构造参数自动生成equals
-     * 如果数据集合很大导致对比速度很慢, 建议在非主步线程中调用此函数, 效果等同于[androidx.recyclerview.widget.AsyncListDiffer]
+     * 如果数据集合很大导致对比速度很慢, 建议使用[setDifferModelsAsync]
      *
      * 对于数据是否匹配可能需要你自定义[itemDifferCallback], 因为默认使用数据模型的[equals]方法匹配, 具体请阅读[ItemDifferCallback.DEFAULT]
      *
@@ -669,32 +1029,133 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         detectMoves: Boolean = true,
         commitCallback: Runnable? = null
     ) {
+        val generation = differGeneration.incrementAndGet()
         val oldModels = _data
-        _data = newModels
-        val diffResult = DiffUtil.calculateDiff(ProxyDiffCallback(newModels, oldModels, itemDifferCallback), detectMoves)
-        val mainLooper = Looper.getMainLooper()
-        if (Looper.myLooper() != mainLooper) {
-            Handler(mainLooper).post {
-                diffResult.dispatchUpdatesTo(this)
-                commitCallback?.run()
+        val version = dataVersion
+        val startTime = System.nanoTime()
+        val diffResult = diffStrategy.calculateTrimmedDiff(oldModels.orEmpty(), newModels.orEmpty(), itemDifferCallback, detectMoves)
+        val computeTime = System.nanoTime() - startTime
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            mainHandler.post {
+                dispatchDiff(generation, version, oldModels, newModels, diffResult, computeTime, commitCallback)
             }
         } else {
-            diffResult.dispatchUpdatesTo(this)
-            commitCallback?.run()
+            dispatchDiff(generation, version, oldModels, newModels, diffResult, computeTime, commitCallback)
+        }
+    }
+
+    /**
+     * 在[BRV.differExecutor]中对比数据, 完成后在主线程刷新列表, 同[androidx.recyclerview.widget.AsyncListDiffer]
+     * 对比期间再次调用[setDifferModels]/[setDifferModelsAsync]会中断当前对比并丢弃其结果, 适合频繁刷新的列表
+     * 对比期间如果[models]被其他方式修改, 则对比结果无效, 将直接赋值[models]刷新列表
+     * 为避免在主线程复制大量数据, 子线程直接读取当前的[models]而不是其副本, 所以对比期间修改[models]只能通过会通知刷新的函数(例如[addModels])
+     *
+     * @param newModels 新的数据, 将覆盖旧的数据. 对比期间不要修改该集合
+     * @param detectMoves 是否对比Item的移动, true会导致列表当前位置发生移动
+     * @param commitCallback 刷新列表完成以后调用(运行在主线程), 被丢弃的对比不会回调
+     * @see onDiffComputed 获取对比耗时
+     */
+    fun setDifferModelsAsync(
+        newModels: List<Any?>?,
+        detectMoves: Boolean = true,
+        commitCallback: Runnable? = null
+    ) {
+        val generation = differGeneration.incrementAndGet()
+        val oldModels = _data
+        val version = dataVersion
+        val strategy = diffStrategy
+        val callback = itemDifferCallback
+        BRV.differExecutor.execute {
+            if (generation != differGeneration.get()) return@execute
+            val startTime = System.nanoTime()
+            val diffResult = try {
+                val cancellableCallback = CancellableDifferCallback(callback) {
+                    generation != differGeneration.get()
+                }
+                strategy.calculateTrimmedDiff(oldModels.orEmpty(), newModels.orEmpty(), cancellableCallback, detectMoves)
+            } catch (e: CancellationException) {
+                return@execute
+            } catch (e: IndexOutOfBoundsException) {
+                // 对比期间旧数据在主线程被修改, 对比结果无效
+                null
+            } catch (e: ConcurrentModificationException) {
+                null
+            }
+            val computeTime = System.nanoTime() - startTime
+            mainHandler.post {
+                dispatchDiff(generation, version, oldModels, newModels, diffResult, computeTime, commitCallback)
+            }
+        }
+    }
+
+    /**
+     * 每次对比数据完成并刷新列表后回调(运行在主线程)
+     * @param block computeTime 对比数据耗时, 单位纳秒
+     */
+    fun onDiffComputed(block: (computeTime: Long) -> Unit) {
+        onDiffComputed = block
+    }
+
+    /**
+     * 在主线程替换数据并刷新列表, 保证[models]和刷新通知同时生效
+     * 过时的对比结果将被丢弃
+     * @param diffResult null表示对比失败, 直接赋值[models]
+     */
+    @SuppressLint("NotifyDataSetChanged")
+    private fun dispatchDiff(
+        generation: Int,
+        version: Int,
+        oldModels: List<Any?>?,
+        newModels: List<Any?>?,
+        diffResult: DifferResult?,
+        computeTime: Long,
+        commitCallback: Runnable?
+    ) {
+        if (generation != differGeneration.get()) return
+        if (diffResult == null || _data !== oldModels || version != dataVersion) {
+            models = newModels
+        } else {
+            _data = newModels
+            // 对比结果的位置是逐步变化的中间状态, 而数据已经是最终状态, 同批量提交一样不增量维护依赖数据的索引
+            itemTypeCounter.invalidate()
+            batchCommitting = true
+            try {
+                diffResult.dispatchUpdatesTo(updateCallback)
+            } finally {
+                batchCommitting = false
+            }
+            // 分发期间不会逐个恢复选中状态, 全部分发完成后按最终数据恢复一次
+            restoreCheckedIds()
         }
+        onDiffComputed?.invoke(computeTime)
+        commitCallback?.run()
     }
 
     /** 可增删的数据模型集合, 本质上就是返回可变的models. 假设未赋值给models则将抛出异常为[ClassCastException] */
-    var mutable
-        get() = models as ArrayList
+    var mutable: ArrayList<Any?>
+        get() {
+            checkModelsMutable()
+            return models as ArrayList
+        }
         set(value) {
             models = value
         }
 
+    /**
+     * 修改[models]前检查其是否支持修改, [PagedModels]/[LiveModels]抛出明确的异常而不是在修改时失败
+     */
+    internal fun checkModelsMutable() {
+        val models = models
+        if (models is PagedModels || models is LiveModels) {
+            throw UnsupportedOperationException("${models.javaClass.simpleName} does not support modification through BindingAdapter, such as mutable/addModels/expand/collapse/item swipe or drag")
+        }
+    }
+
     /**
      * 扁平化数据, 将折叠分组铺平展开创建列表
+     * 仅当存在需要铺平的分组时才会重建[models], 子列表直接追加到[models]中而不会被复制
      * @param models 数据集合
-     * @param expand 是否展开或折叠其子分组, null则什么都不做
+     * @param expand 是否展开其子分组, null则什么都不做
      * @param depth 扁平化深度层级 -1 表示全部
      */
     private fun flat(
@@ -704,11 +1165,41 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
     ): MutableList<Any?> {
 
         if (models.isEmpty()) return models
-        val arrayList = ArrayList(models)
-        models.clear()
+        val forceExpand = expand == true && depth != 0
+        val flatRequired = models.any {
+            it is ItemExpand && !it.itemSublist.isNullOrEmpty() && (it.itemExpand || forceExpand)
+        }
+
+        if (flatRequired) {
+            val arrayList = ArrayList(models)
+            models.clear()
+            flatTo(arrayList, models, expand, depth)
+        } else {
+            models.forEachIndexed { index, item ->
+                if (item is ItemExpand) {
+                    item.itemGroupPosition = index
+                    if (expand != null && depth != 0) item.itemExpand = expand
+                }
+            }
+        }
+        return models
+    }
 
-        arrayList.forEachIndexed { index, item ->
-            models.add(item)
+    /**
+     * 将[models]铺平追加到[target]尾部, 已展开分组的子列表会被递归追加
+     * @param models 数据集合, 不能和[target]为同一个集合对象
+     * @param target 铺平后的数据追加到该集合
+     * @param expand 是否展开其子分组, null则什么都不做
+     * @param depth 扁平化深度层级 -1 表示全部
+     */
+    private fun flatTo(
+        models: List<Any?>,
+        target: MutableList<Any?>,
+        expand: Boolean?,
+        @IntRange(from = -1) depth: Int,
+    ) {
+        models.forEachIndexed { index, item ->
+            target.add(item)
             if (item is ItemExpand) {
                 item.itemGroupPosition = index
                 var nextDepth = depth
@@ -718,13 +1209,38 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
                 }
 
                 val itemSublist = item.itemSublist
-                if (!itemSublist.isNullOrEmpty() && (item.itemExpand || (depth != 0 && expand != null))) {
-                    val nestedList = flat(ArrayList(itemSublist), expand, nextDepth)
-                    models.addAll(nestedList)
+                if (item.itemExpand && !itemSublist.isNullOrEmpty()) {
+                    flatTo(itemSublist, target, expand, nextDepth)
                 }
             }
         }
-        return models
+    }
+
+    /**
+     * 计算子列表当前在[models]中占用的条目数量(包含已展开的嵌套分组), 无需铺平子列表
+     * @param sublist 分组的子列表
+     * @param collapseDepth 同时折叠嵌套分组的深度, -1 表示全部, 0 表示不折叠
+     * @return 可见的条目数量
+     */
+    private fun countVisible(
+        sublist: List<Any?>,
+        @IntRange(from = -1) collapseDepth: Int = 0,
+    ): Int {
+        var count = sublist.size
+        val nextDepth = if (collapseDepth > 0) collapseDepth - 1 else collapseDepth
+        for (item in sublist) {
+            if (item !is ItemExpand) continue
+            val itemSublist = item.itemSublist
+            if (!itemSublist.isNullOrEmpty()) {
+                if (item.itemExpand) {
+                    count += countVisible(itemSublist, nextDepth)
+                } else if (collapseDepth != 0 && nextDepth != 0) {
+                    countVisible(itemSublist, nextDepth) // 不可见的子列表仅折叠而不计数
+                }
+            }
+            if (collapseDepth != 0) item.itemExpand = false
+        }
+        return count
     }
 
     /**
@@ -756,6 +1272,17 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
     }
 
 
+    /**
+     * 插入条目后只刷新边缘状态发生变化的条目的分割线间距, 和插入在同一次布局中完成
+     */
+    private fun dispatchDecorationInserted(positionStart: Int, itemCount: Int) {
+        val rv = rv ?: return
+        for (i in 0 until rv.itemDecorationCount) {
+            val decoration = rv.getItemDecorationAt(i) as? DefaultDecoration ?: continue
+            decoration.onItemRangeInserted(rv, positionStart, itemCount, updateCallback)
+        }
+    }
+
     /**
      * 添加新的数据
      * @param models 被添加的数据
@@ -769,6 +1296,7 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         @IntRange(from = -1) index: Int = -1
     ) {
         if (models.isNullOrEmpty()) return
+        checkModelsMutable()
         val data: MutableList<Any?> = when (models) {
             is ArrayList -> models
             else -> models.toMutableList()
@@ -776,12 +1304,12 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         when {
             this.models == null -> {
                 this.models = flat(data)
-                notifyDataSetChanged()
+                dispatchDataSetChanged()
             }
             this.models?.isEmpty() == true -> {
                 (this.models as? MutableList)?.let {
                     it.addAll(flat(data))
-                    notifyDataSetChanged()
+                    dispatchDataSetChanged()
                 }
             }
             else -> {
@@ -795,12 +1323,10 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
                     realModels.addAll(index, flat(data))
                 }
                 if (animation) {
-                    notifyItemRangeInserted(insertIndex, data.size)
-                    rv?.post {
-                        rv?.invalidateItemDecorations()
-                    }
+                    updateCallback.onInserted(insertIndex, data.size)
+                    dispatchDecorationInserted(insertIndex, data.size)
                 } else {
-                    notifyDataSetChanged()
+                    dispatchDataSetChanged()
                 }
             }
         }
@@ -814,6 +1340,61 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
 
     // </editor-fold>
 
+    // <editor-fold desc="批量刷新">
+
+    private val adapterUpdateCallback = AdapterListUpdateCallback(this)
+
+    /** 批量操作期间记录的列表变化, null表示未处于批量操作 */
+    private var batchRecorder: ListUpdateRecorder? = null
+
+    /** 正在分发批量操作记录或者数据对比结果的列表变化, 此时数据已是最终状态, 无法按操作逐个读取数据 */
+    private var batchCommitting = false
+
+    /** 批量操作期间记录列表变化, 否则立即刷新列表 */
+    internal val updateCallback: ListUpdateCallback
+        get() = batchRecorder ?: adapterUpdateCallback
+
+    @SuppressLint("NotifyDataSetChanged")
+    internal fun dispatchDataSetChanged() {
+        val recorder = batchRecorder
+        if (recorder == null) notifyDataSetChanged() else recorder.onDataSetChanged()
+    }
+
+    /**
+     * 批量修改数据, 期间BRV函数(例如[addModels]/[addHeader]/[removeFooter]/展开折叠分组)引起的列表变化会被记录, 相邻的同类变化合并为一个范围, 最后一次性刷新列表
+     * 任意操作要求全部刷新时最后只会调用一次[notifyDataSetChanged]
+     *
+     * 期间请勿直接调用notify**()函数, 手动修改数据后请通过[block]参数updates记录变化, 例如`updates.onRemoved(position, 1)`
+     * 期间依赖position的状态(例如[checkedPosition])在提交后才会更新
+     *
+     * @param block updates 记录列表变化
+     */
+    fun batch(block: BindingAdapter.(updates: ListUpdateCallback) -> Unit) {
+        batchRecorder?.let { return block(it) }
+        val recorder = ListUpdateRecorder {
+            invalidateGroupIndex()
+            itemTypeCounter.invalidate()
+        }
+        batchRecorder = recorder
+        try {
+            block(recorder)
+        } finally {
+            batchRecorder = null
+            if (recorder.dataSetChanged) {
+                dispatchDataSetChanged()
+            } else {
+                batchCommitting = true
+                try {
+                    recorder.dispatchTo(adapterUpdateCallback)
+                } finally {
+                    batchCommitting = false
+                }
+                restoreCheckedIds()
+            }
+        }
+    }
+    // </editor-fold>
+
     //<editor-fold desc="切换模式">
 
     /** 是否开启切换模式 */
@@ -861,35 +1442,64 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
     // <editor-fold desc="选择模式">
 
     private var checkableItemTypeList: List<Int>? = null
+    private var onCheckedBatch: ((positions: IntArray, allChecked: Boolean) -> Unit)? = null
+
+    /** 已选择条目的position集合, 插入/删除/移动条目后会自动平移 */
+    private val checkedSet = PositionBitSet()
+
+    /**
+     * 已选择条目的position, 按升序排列
+     * 直接读取选中状态而不复制集合, 修改该集合不会回调选择事件, 请使用[setChecked]/[checkedAll]等函数修改
+     */
+    val checkedPosition: MutableList<Int> = CheckedPositionList(checkedSet)
+
+    /** 已选择条目的[ItemStableId.getItemId] */
+    private val checkedIds = LongHashSet()
 
-    /** 已选择条目的position */
-    val checkedPosition = mutableListOf<Int>()
+    /**
+     * 选中状态是否以[ItemStableId.getItemId]记录, 要求数据模型实现[ItemStableId]
+     *
+     * 开启后赋值[models]不会清空选中状态, [setDifferModels]/[addModels]/分组展开折叠后相同ID的条目依然保持选中
+     * 被删除或者折叠的条目其选中状态会被保留, 再次出现在列表中时依然为选中
+     */
+    var stableIdCheckedEnabled = false
+        set(value) {
+            if (field == value) return
+            field = value
+            checkedIds.clear()
+            if (value) recordCheckedIds(checkedSet.toList().toIntArray())
+        }
+
+    /**
+     * 返回被选中的条目[ItemStableId.getItemId]集合, 包含当前不在列表中的条目(例如分组已折叠)
+     * 仅在[stableIdCheckedEnabled]为true时有效
+     */
+    fun getCheckedIds(): LongArray = checkedIds.toLongArray()
 
     /** 已选择条目数量 */
-    val checkedCount: Int get() = checkedPosition.size
+    val checkedCount: Int get() = checkedSet.size
 
-    private val checkableCount: Int
+    /** 每种类型的条目数量, 跟随数据变化增量维护 */
+    private val itemTypeCounter = ItemTypeCounter()
+
+    /** 可选择的条目数量, 未设置[setCheckableType]时等于[modelCount] */
+    val checkableCount: Int
         get() {
-            var count = 0
-            if (checkableItemTypeList == null) {
-                return models!!.size
-            } else {
-                for (i in 0 until itemCount) {
-                    if (checkableItemTypeList!!.contains(getItemViewType(i))) {
-                        count++
-                    }
-                }
+            val checkableItemTypeList = checkableItemTypeList ?: return modelCount
+            if (itemTypeCounter.invalid || !dataObserved) {
+                itemTypeCounter.rebuild(itemCount) { getItemViewType(it) }
             }
-            return count
+            return checkableItemTypeList.sumOf { itemTypeCounter.count(it) }
         }
 
-    /** 全局单选模式 */
+    /** 全局单选模式, 开启时仅保留最后一个选中的条目 */
     var singleMode = false
         set(value) {
             field = value
-            val size = checkedPosition.size
-            if (field && size > 1) {
-                for (i in 0 until size - 1) setChecked(checkedPosition[0], false)
+            if (field && checkedCount > 1) {
+                val unchecked = checkedSet.removeRange(0, checkedSet.lastSetBit())
+                recordCheckedIds(unchecked)
+                dispatchChecked(unchecked, true)
             }
         }
 
@@ -897,8 +1507,12 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
      * 返回被选中的条目对应的数据模型集合
      */
     fun <M> getCheckedModels(): List<M> {
-        val checkedModels = ArrayList<M>()
-        for (position in this.checkedPosition) checkedModels.add(getModel(position))
+        val checkedModels = ArrayList<M>(checkedCount)
+        var position = checkedSet.nextSetBit(0)
+        while (position != -1) {
+            checkedModels.add(getModel(position))
+            position = checkedSet.nextSetBit(position + 1)
+        }
         return checkedModels
     }
 
@@ -907,7 +1521,7 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
      * @see setChecked
      */
     fun setCheckableType(@LayoutRes vararg checkableItemType: Int) {
-        checkableItemTypeList = checkableItemType.toMutableList()
+        checkableItemTypeList = checkableItemType.distinct()
     }
 
 
@@ -916,18 +1530,18 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
      * @param checked true为全选, false 取消全部选择
      */
     fun checkedAll(checked: Boolean = true) {
-        if (checked) {
+        if (onChecked == null && onCheckedBatch == null) return
+        val changed = if (checked) {
             if (singleMode) return
-            for (i in 0 until itemCount) {
-                if (!checkedPosition.contains(i)) {
-                    setChecked(i, true)
-                }
-            }
+            if (checkableItemTypeList == null) {
+                checkedSet.addRange(0, itemCount)
+            } else updateCheckable { checkedSet.add(it) }
         } else {
-            for (i in 0 until itemCount) {
-                if (checkedPosition.contains(i)) setChecked(i, false)
-            }
+            checkedIds.clear()
+            checkedSet.removeRange(0, itemCount)
         }
+        recordCheckedIds(changed)
+        dispatchChecked(changed, true)
     }
 
     /**
@@ -935,19 +1549,25 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
      */
     fun isCheckedAll(): Boolean = checkedCount == checkableCount
 
+    /**
+     * 指定position的条目是否选中
+     */
+    fun isChecked(@IntRange(from = 0) position: Int): Boolean = position in checkedSet
 
     /**
      * 反选
      */
     fun checkedReverse() {
         if (singleMode) return
-        for (i in 0 until itemCount) {
-            if (checkedPosition.contains(i)) {
-                setChecked(i, false)
-            } else {
-                setChecked(i, true)
-            }
+        if (onChecked == null && onCheckedBatch == null) return
+        val changed = if (checkableItemTypeList == null) {
+            checkedSet.flipRange(0, itemCount)
+        } else updateCheckable {
+            if (!checkedSet.remove(it)) checkedSet.add(it)
+            true
         }
+        recordCheckedIds(changed)
+        dispatchChecked(changed, true)
     }
 
 
@@ -956,30 +1576,34 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
      */
     fun setChecked(@IntRange(from = 0) position: Int, checked: Boolean) {
 
-        if ((checkedPosition.contains(position) && checked) ||
-            (!checked && !checkedPosition.contains(position))
-        ) return
+        if (isChecked(position) == checked) return
 
         val itemViewType = getItemViewType(position)
 
         if (checkableItemTypeList?.contains(itemViewType) == false) return
 
-        if (onChecked == null) return
+        if (onChecked == null && onCheckedBatch == null) return
 
-        if (checked) checkedPosition.add(position)
-        else checkedPosition.remove(Integer.valueOf(position))
+        if (checked) checkedSet.add(position)
+        else checkedSet.remove(position)
 
-        if (singleMode && checked && checkedPosition.size > 1) {
-            setChecked(checkedPosition[0], false)
+        if (singleMode && checked) {
+            checkedIds.clear()
+            if (checkedCount > 1) {
+                val unchecked = checkedSet.removeRange(0, position) + checkedSet.removeRange(position + 1, Int.MAX_VALUE)
+                dispatchChecked(unchecked, false)
+            }
         }
-        onChecked?.invoke(position, checked, isCheckedAll())
+        val positions = intArrayOf(position)
+        recordCheckedIds(positions)
+        dispatchChecked(positions, false)
     }
 
     /**
      * 切换选中
      */
     fun checkedSwitch(@IntRange(from = 0) position: Int) {
-        if (checkedPosition.contains(position)) {
+        if (isChecked(position)) {
             setChecked(position, false)
         } else {
             setChecked(position, true)
@@ -994,6 +1618,84 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         onChecked = block
     }
 
+    /**
+     * 批量选中事件回调
+     * 设置后[checkedAll]/[checkedReverse]/[singleMode]批量变更选中状态时只会回调一次本函数, 而不再逐个回调[onChecked]
+     * 单独调用[setChecked]时如果未设置[onChecked]也会回调本函数
+     *
+     * @param block 形参positions为选中状态发生变化的条目, 其当前状态可以通过[isChecked]查询. 形参allChecked表示变更后是否全选
+     */
+    fun onCheckedBatch(block: (positions: IntArray, allChecked: Boolean) -> Unit) {
+        onCheckedBatch = block
+    }
+
+    /**
+     * 遍历全部可选择的条目
+     * @param update 更新指定条目的选中状态, 返回true表示选中状态发生变化
+     * @return 选中状态发生变化的position
+     */
+    private inline fun updateCheckable(update: (position: Int) -> Boolean): IntArray {
+        val checkableItemTypeList = checkableItemTypeList
+        var changed = IntArray(16)
+        var changedCount = 0
+        for (position in 0 until itemCount) {
+            if (checkableItemTypeList != null && !checkableItemTypeList.contains(getItemViewType(position))) continue
+            if (update(position)) {
+                if (changedCount == changed.size) changed = changed.copyOf(changedCount * 2)
+                changed[changedCount++] = position
+            }
+        }
+        return changed.copyOf(changedCount)
+    }
+
+    /**
+     * 将指定条目当前的选中状态记录到[checkedIds]
+     */
+    private fun recordCheckedIds(positions: IntArray) {
+        if (!stableIdCheckedEnabled) return
+        for (position in positions) {
+            val id = getModelOrNull<ItemStableId>(position)?.getItemId() ?: continue
+            if (isChecked(position)) checkedIds.add(id) else checkedIds.remove(id)
+        }
+    }
+
+    /**
+     * 根据[checkedIds]还原指定范围内条目的选中状态, 未实现[ItemStableId]的条目保持不变
+     */
+    private fun restoreCheckedIds(positionStart: Int = 0, itemCount: Int = this.itemCount) {
+        if (!stableIdCheckedEnabled) return
+        for (position in positionStart until positionStart + itemCount) {
+            val id = getModelOrNull<ItemStableId>(position)?.getItemId() ?: continue
+            if (id in checkedIds) checkedSet.add(position) else checkedSet.remove(position)
+        }
+    }
+
+    /**
+     * 回调选中状态变化, 此时[checkedSet]已经更新完毕
+     * @param positions 选中状态发生变化的条目
+     * @param batch 是否为批量操作, 批量操作优先回调[onCheckedBatch]
+     */
+    private fun dispatchChecked(positions: IntArray, batch: Boolean) {
+        if (positions.isEmpty()) return
+        val onChecked = onChecked
+        val onCheckedBatch = onCheckedBatch
+        if (onCheckedBatch != null && (batch || onChecked == null)) {
+            onCheckedBatch.invoke(positions, isCheckedAll())
+        } else if (onChecked != null) {
+            // 按逐个选择的顺序还原每次回调时的全选状态
+            val checkableCount = checkableCount
+            var checkedCount = checkedCount
+            for (position in positions) {
+                if (isChecked(position)) checkedCount-- else checkedCount++
+            }
+            for (position in positions) {
+                val checked = isChecked(position)
+                if (checked) checkedCount++ else checkedCount--
+                onChecked.invoke(position, checked, checkedCount == checkableCount)
+            }
+        }
+    }
+
     // </editor-fold>
 
     //<editor-fold desc="分组">
@@ -1014,25 +1716,315 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
 
     /**
      * 判断两个位置的item是否属于同一分组下, 要求这两个位置的item都展开才有效
-     * 如果其中一个item都属于根节点则返回-1, 这种情况不算属于同一分组下
+     * 如果其中一个item属于根节点则返回false, 这种情况不算属于同一分组下
      */
     fun isSameGroup(
         @IntRange(from = 0) position: Int,
         @IntRange(from = 0) otherPosition: Int,
     ): Boolean {
-        val aModel = models?.getOrNull(otherPosition) ?: return false
-        val bModel = models?.getOrNull(otherPosition) ?: return false
-        for (index in min(position, otherPosition) - 1 downTo 0) {
-            val item = models?.getOrNull(index) ?: break
-            if (item is ItemExpand && item.itemSublist?.contains(aModel) == true
-                && item.itemSublist?.contains(bModel) == true
-            ) {
-                return true
+        val parentPosition = findParentPosition(position)
+        return parentPosition != -1 && parentPosition == findParentPosition(otherPosition)
+    }
+
+    /**
+     * 查找分组中的父项位置
+     * @param position 子项的position
+     * @return -1 表示不存在父项
+     */
+    fun findParentPosition(@IntRange(from = 0) position: Int): Int {
+        val modelPosition = position - headerCount
+        if (modelPosition < 0 || modelPosition >= modelCount) return -1
+        buildGroupIndex()
+        val parentPosition = groupParents[modelPosition]
+        return if (parentPosition == -1) -1 else parentPosition + headerCount
+    }
+
+    /**
+     * 查找条目在分组中的深度, 根节点为0
+     * @param position 条目的position
+     * @return -1 表示该position不属于[models]
+     */
+    fun findDepth(@IntRange(from = 0) position: Int): Int {
+        val modelPosition = position - headerCount
+        if (modelPosition < 0 || modelPosition >= modelCount) return -1
+        buildGroupIndex()
+        return groupDepths[modelPosition]
+    }
+
+    /**
+     * 查找数据模型在列表中的位置, 通过对象引用而非[equals]匹配
+     * @return -1 表示不存在于[models]中
+     */
+    fun findModelPosition(model: Any?): Int {
+        if (model == null || modelCount == 0) return -1
+        buildGroupPositions()
+        val modelPosition = groupPositions[model] ?: return -1
+        return modelPosition + headerCount
+    }
+
+    /** 分组索引是否需要重建 */
+    private var groupIndexInvalid = true
+
+    /** [groupPositions]是否需要重建, 仅[findModelPosition]使用所以延迟到查找时重建 */
+    private var groupPositionsInvalid = true
+
+    /** 数据模型对象 -> [models]中的索引 */
+    private val groupPositions = IdentityHashMap<Any, Int>()
+
+    /** 构建索引时[models]中每个索引对应的数据模型, 用于判断局部刷新时数据模型是否被替换 */
+    private var groupModels = arrayOfNulls<Any>(0)
+
+    /** 索引覆盖的[models]数量 */
+    private var groupSize = 0
+
+    /** [models]中每个索引对应父项的索引, -1 表示根节点 */
+    private var groupParents = IntArray(0)
+
+    /** [models]中每个索引对应的分组深度 */
+    private var groupDepths = IntArray(0)
+
+    private fun invalidateGroupIndex() {
+        groupIndexInvalid = true
+        groupPositionsInvalid = true
+    }
+
+    /**
+     * 遍历一次[models]构建分组索引, 之后查找父项/深度都是常量时间
+     * 数据局部变化(notify**Range**)时在监听中增量更新, 仅全部刷新/移动/批量提交等情况才会在下次查找时重建
+     * 未被RecyclerView使用时无法监听数据变化则每次重建
+     */
+    private fun buildGroupIndex() {
+        if (!groupIndexInvalid && dataObserved) return
+        val models = models ?: emptyList()
+        val size = models.size
+        groupPositionsInvalid = true
+        ensureGroupCapacity(size)
+        groupModels.fill(null, size, groupModels.size)
+
+        val cursors = ArrayList<GroupCursor>()
+        for (index in 0 until size) {
+            val item = models[index]
+            var parentPosition = -1
+            while (cursors.isNotEmpty()) {
+                if (cursors.last().moveTo(item)) {
+                    parentPosition = cursors.last().position
+                    break
+                }
+                cursors.removeAt(cursors.lastIndex)
+            }
+            groupModels[index] = item
+            groupParents[index] = parentPosition
+            groupDepths[index] = if (parentPosition == -1) 0 else groupDepths[parentPosition] + 1
+
+            if (item is ItemExpand && item.itemExpand) {
+                val itemSublist = item.itemSublist
+                if (!itemSublist.isNullOrEmpty()) cursors.add(GroupCursor(index, itemSublist))
+            }
+        }
+        groupSize = size
+        groupIndexInvalid = false
+    }
+
+    /** 数据模型对象 -> 索引的映射只在[findModelPosition]时按需重建 */
+    private fun buildGroupPositions() {
+        buildGroupIndex()
+        if (!groupPositionsInvalid && dataObserved) return
+        groupPositions.clear()
+        for (index in 0 until groupSize) {
+            val item = groupModels[index] ?: continue
+            groupPositions[item] = index
+        }
+        groupPositionsInvalid = false
+    }
+
+    private fun ensureGroupCapacity(size: Int) {
+        if (groupParents.size >= size) return
+        val capacity = maxOf(size, groupParents.size + (groupParents.size shr 1))
+        groupParents = groupParents.copyOf(capacity)
+        groupDepths = groupDepths.copyOf(capacity)
+        groupModels = groupModels.copyOf(capacity)
+    }
+
+    /** 增量更新分组索引的前提, 批量提交时[models]已经是最终状态无法按单次变化更新 */
+    private val groupIndexIncremental get() = !groupIndexInvalid && !batchCommitting
+
+    /**
+     * 插入条目后增量更新索引, 例如展开分组
+     * 数量不变说明是头布局/脚布局, 不影响索引
+     */
+    private fun insertGroupIndex(positionStart: Int, itemCount: Int) {
+        if (!groupIndexIncremental) return invalidateGroupIndex()
+        val size = groupSize
+        if (modelCount == size) return
+        val start = positionStart - headerCount
+        if (modelCount != size + itemCount || start < 0 || start > size) return invalidateGroupIndex()
+        val models = models ?: return invalidateGroupIndex()
+        val end = start + itemCount
+        ensureGroupCapacity(size + itemCount)
+        groupParents.copyInto(groupParents, end, start, size)
+        groupDepths.copyInto(groupDepths, end, start, size)
+        groupModels.copyInto(groupModels, end, start, size)
+        for (index in end until size + itemCount) {
+            if (groupParents[index] >= start) groupParents[index] += itemCount
+        }
+
+        // 同构建索引一样通过游标顺序匹配子项, 展开k个子项只需要O(k)
+        val cursors = ancestorCursors(start - 1) ?: return invalidateGroupIndex()
+        for (index in start until end) {
+            val item = models[index]
+            var parentPosition = -1
+            while (cursors.isNotEmpty()) {
+                if (cursors.last().moveTo(item)) {
+                    parentPosition = cursors.last().position
+                    break
+                }
+                cursors.removeAt(cursors.lastIndex)
+            }
+            groupModels[index] = item
+            groupParents[index] = parentPosition
+            groupDepths[index] = if (parentPosition == -1) 0 else groupDepths[parentPosition] + 1
+
+            if (item is ItemExpand && item.itemExpand) {
+                val itemSublist = item.itemSublist
+                if (!itemSublist.isNullOrEmpty()) cursors.add(GroupCursor(index, itemSublist))
+            }
+        }
+        // 插入的分组包含了后面已存在的条目, 后面条目的父项都会变化
+        if (end < size + itemCount) {
+            val next = models[end]
+            for (cursor in cursors) {
+                if (cursor.position >= start && cursor.moveTo(next)) return invalidateGroupIndex()
             }
         }
+        groupSize = size + itemCount
+        groupPositionsInvalid = true
+    }
+
+    /**
+     * 创建[position]及其全部祖先的游标, 游标都位于[position]所在子项之后, 用于继续匹配之后插入的条目
+     * @return null 表示索引和数据不一致
+     */
+    private fun ancestorCursors(position: Int): ArrayList<GroupCursor>? {
+        val cursors = ArrayList<GroupCursor>()
+        if (position == -1) return cursors
+        val chain = IntArray(groupDepths[position] + 1)
+        var ancestor = position
+        for (index in chain.indices) {
+            chain[index] = ancestor
+            ancestor = groupParents[ancestor]
+        }
+        for (index in chain.lastIndex downTo 0) {
+            val item = groupModels[chain[index]]
+            if (item !is ItemExpand || !item.itemExpand) continue
+            val itemSublist = item.itemSublist
+            if (itemSublist.isNullOrEmpty()) continue
+            val cursor = GroupCursor(chain[index], itemSublist)
+            if (index > 0 && !cursor.moveTo(groupModels[chain[index - 1]])) return null
+            cursors.add(cursor)
+        }
+        return cursors
+    }
+
+    /**
+     * 删除条目后增量更新索引, 例如折叠分组
+     * 数量不变说明是头布局/脚布局, 不影响索引
+     */
+    private fun removeGroupIndex(positionStart: Int, itemCount: Int) {
+        if (!groupIndexIncremental) return invalidateGroupIndex()
+        val size = groupSize
+        if (modelCount == size) return
+        val start = positionStart - headerCount
+        val end = start + itemCount
+        if (modelCount != size - itemCount || start < 0 || end > size) return invalidateGroupIndex()
+        for (index in end until size) {
+            val parentPosition = groupParents[index]
+            // 父项被删除而子项还在, 剩余条目的父项需要重新查找
+            if (parentPosition in start until end) return invalidateGroupIndex()
+            if (parentPosition >= end) groupParents[index] = parentPosition - itemCount
+        }
+        groupParents.copyInto(groupParents, start, end, size)
+        groupDepths.copyInto(groupDepths, start, end, size)
+        groupModels.copyInto(groupModels, start, end, size)
+        groupModels.fill(null, size - itemCount, size)
+        groupSize = size - itemCount
+        groupPositionsInvalid = true
+    }
+
+    /**
+     * 刷新条目后增量更新索引, 数据模型未被替换时索引不变
+     * 被替换的条目只要新旧数据都不是已展开的分组(没有子项跟随), 仅需重新查找该条目的父项
+     *
+     * 展开/折叠分组时会先修改[models]再依次通知刷新分组和插入/删除子项, 所以刷新时数量可能已经变化, 此时只允许数据模型未被替换
+     */
+    private fun changeGroupIndex(positionStart: Int, itemCount: Int) {
+        if (!groupIndexIncremental) return invalidateGroupIndex()
+        val models = models ?: return invalidateGroupIndex()
+        val resized = models.size != groupSize
+        val start = maxOf(0, positionStart - headerCount)
+        val end = minOf(groupSize, models.size, positionStart + itemCount - headerCount)
+        for (index in start until end) {
+            val item = models[index]
+            val oldItem = groupModels[index]
+            if (item === oldItem) continue
+            if (resized || oldItem.isExpandedGroup() || item.isExpandedGroup()) return invalidateGroupIndex()
+            val parentPosition = findInsertedParent(index, item)
+            groupModels[index] = item
+            groupParents[index] = parentPosition
+            groupDepths[index] = if (parentPosition == -1) 0 else groupDepths[parentPosition] + 1
+            groupPositionsInvalid = true
+        }
+    }
+
+    /**
+     * 查找新条目的父项, 父项只可能是前一个条目或者它的祖先
+     * @param position 新条目在[models]中的索引, 之前的索引已经更新完毕
+     */
+    private fun findInsertedParent(position: Int, item: Any?): Int {
+        var parentPosition = position - 1
+        while (parentPosition != -1) {
+            if (groupModels[parentPosition].sublistContains(item, position - parentPosition - 1)) return parentPosition
+            parentPosition = groupParents[parentPosition]
+        }
+        return -1
+    }
+
+    private fun Any?.isExpandedGroup(): Boolean {
+        return this is ItemExpand && itemExpand && !itemSublist.isNullOrEmpty()
+    }
+
+    /**
+     * 已展开分组的子项是否包含[item], 通过对象引用匹配
+     * @param hint 优先匹配的子项索引, 子项都未展开时即条目和分组的距离
+     */
+    private fun Any?.sublistContains(item: Any?, hint: Int): Boolean {
+        if (this !is ItemExpand || !itemExpand) return false
+        val itemSublist = itemSublist ?: return false
+        if (hint in itemSublist.indices && itemSublist[hint] === item) return true
+        for (index in itemSublist.indices) {
+            if (itemSublist[index] === item) return true
+        }
         return false
     }
 
+    /**
+     * 已展开分组在[models]中的遍历游标, 子项在[models]中的顺序和[sublist]一致
+     * @param position 分组在[models]中的索引
+     */
+    private class GroupCursor(val position: Int, private val sublist: List<Any?>) {
+        private var next = 0
+
+        /** 从上次匹配的子项向后查找[item], 找到则返回true */
+        fun moveTo(item: Any?): Boolean {
+            for (index in next until sublist.size) {
+                if (sublist[index] === item) {
+                    next = index + 1
+                    return true
+                }
+            }
+            return false
+        }
+    }
+
     /**
      * 展开
      * @param position 指定position的条目折叠
@@ -1093,44 +2085,65 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
 
         lateinit var _data: Any private set
         var context: Context = this@BindingAdapter.context!!
-        val adapter: BindingAdapter = this@BindingAdapter
-        val modelPosition get() = layoutPosition - headerCount
+
+        /** 当前使用该ViewHolder的Adapter, 启用[sharedPoolEnabled]时可能不是创建它的Adapter */
+        var adapter: BindingAdapter = this@BindingAdapter
+            private set
+        val modelPosition get() = layoutPosition - adapter.headerCount
 
         private var viewDataBinding: ViewDataBinding? = null
 
+        /** 已绑定的[ItemVersion]版本及位置, 用于跳过重复绑定 */
+        private var boundVersion = 0L
+        private var boundPosition = RecyclerView.NO_POSITION
+        private var boundExpand: Boolean? = null
+
         constructor(itemView: View) : super(itemView)
 
         constructor(viewDataBinding: ViewDataBinding) : super(viewDataBinding.root) {
             this.viewDataBinding = viewDataBinding
         }
 
-        init {
-            for (clickListener in clickListeners) {
-                val view = itemView.findViewById<View>(clickListener.key) ?: continue
-                if (clickListener.value.second) {
-                    view.setOnClickListener {
-                        (clickListener.value.first ?: onClick)?.invoke(this, it.id)
-                    }
-                } else {
-                    view.throttleClick(clickThrottle) {
-                        (clickListener.value.first ?: onClick)?.invoke(this@BindingViewHolder, id)
-                    }
-                }
+        /**
+         * 为监听点击事件的视图设置[adapter]共用的监听器
+         */
+        internal fun setupClickListeners(viewType: Int) {
+            val adapter = adapter
+            for (target in adapter.findClickTargets(itemView, viewType)) {
+                val view = target.find(itemView) ?: continue
+                if (target.click) view.setOnClickListener(adapter.itemClickListener)
+                if (target.longClick) view.setOnLongClickListener(adapter.itemClickListener)
             }
-            for (longClickListener in longClickListeners) {
-                val view = itemView.findViewById<View>(longClickListener.key) ?: continue
-                view.setOnLongClickListener {
-                    (longClickListener.value ?: onLongClick)?.invoke(this, it.id)
-                    true
-                }
+        }
+
+        /**
+         * 从共享复用池中取出的其他Adapter创建的ViewHolder, 替换为[adapter]的点击事件并执行其[onCreate]
+         */
+        internal fun reattach(adapter: BindingAdapter) {
+            for (target in this.adapter.findClickTargets(itemView, itemViewType)) {
+                val view = target.find(itemView) ?: continue
+                if (target.click) view.setOnClickListener(null)
+                if (target.longClick) view.setOnLongClickListener(null)
             }
+            this.adapter = adapter
+            boundPosition = RecyclerView.NO_POSITION
+            context = adapter.context ?: context
+            setupClickListeners(itemViewType)
+            adapter.onCreate?.invoke(this, itemViewType)
         }
 
         internal fun bind(model: Any) {
+            val version = (model as? ItemVersion)?.itemVersion
+            val itemExpand = (model as? ItemExpand)?.itemExpand
+            if (version != null && isBound(model, version, itemExpand)) return
             this._data = model
+            boundPosition = if (version == null) RecyclerView.NO_POSITION else layoutPosition
+            boundVersion = version ?: 0L
+            boundExpand = itemExpand
 
-            onBindViewHolders.forEach {
-                it.onBindViewHolder(rv!!, adapter, this, adapterPosition)
+            val adapter = adapter
+            adapter.onBindViewHolders.forEach {
+                it.onBindViewHolder(adapter.rv!!, adapter, this, adapterPosition)
             }
 
             if (model is ItemPosition) {
@@ -1141,13 +2154,13 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
                 model.onBind(this)
             }
 
-            onBind?.invoke(this@BindingViewHolder)
+            adapter.onBind?.invoke(this@BindingViewHolder)
 
-            val dataBindingEnable = dataBindingEnable
+            // DataBinding是否可用和Adapter无关, 而modelId需要使用当前Adapter的配置
             val viewDataBinding = viewDataBinding
-            if (dataBindingEnable && viewDataBinding != null) {
+            if (BindingAdapter.dataBindingEnable && viewDataBinding != null) {
                 try {
-                    viewDataBinding.setVariable(modelId, model)
+                    viewDataBinding.setVariable(adapter.modelId, model)
                     viewDataBinding.executePendingBindings()
                 } catch (e: Exception) {
                     val message =
@@ -1158,6 +2171,14 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         }
 
 
+        /**
+         * 是否已经绑定数据模型的该版本, 展开状态由内部修改所以同样需要比较
+         */
+        private fun isBound(model: Any, version: Long, itemExpand: Boolean?): Boolean {
+            return ::_data.isInitialized && _data === model && boundVersion == version &&
+                    boundPosition == layoutPosition && boundExpand == itemExpand
+        }
+
         /**
          * 返回匹配泛型的数据绑定对象ViewDataBinding
          */
@@ -1193,37 +2214,39 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
         fun expand(scrollTop: Boolean = false, @IntRange(from = -1) depth: Int = 0): Int {
             val itemExpand = getModelOrNull<ItemExpand>()
             if (itemExpand?.itemExpand == true) return 0
+            adapter.checkModelsMutable()
 
             var position = if (bindingAdapterPosition == -1) layoutPosition else bindingAdapterPosition
 
-            if (singleExpandMode && previousExpandPosition != -1 && findParentPosition() != previousExpandPosition) {
-                val collapseCount = adapter.collapse(previousExpandPosition)
-                if (position > previousExpandPosition) {
+            if (adapter.singleExpandMode && adapter.previousExpandPosition != -1 && findParentPosition() != adapter.previousExpandPosition) {
+                val collapseCount = adapter.collapse(adapter.previousExpandPosition)
+                if (position > adapter.previousExpandPosition) {
                     position -= collapseCount
                 }
             }
 
-            onExpand?.invoke(this, true)
+            adapter.onExpand?.invoke(this, true)
 
             return if (itemExpand != null && !itemExpand.itemExpand) {
                 val itemSublist = itemExpand.itemSublist
                 itemExpand.itemExpand = true
-                previousExpandPosition = position
+                adapter.previousExpandPosition = position
                 if (itemSublist.isNullOrEmpty()) {
-                    notifyItemChanged(position)
+                    adapter.updateCallback.onChanged(position, 1, null)
                     0
                 } else {
-                    val sublistFlat = flat(ArrayList(itemSublist), true, depth)
+                    val sublistFlat = ArrayList<Any?>(itemSublist.size)
+                    adapter.flatTo(itemSublist, sublistFlat, true, depth)
 
-                    (this@BindingAdapter.models as MutableList).addAll(position + 1 - headerCount, sublistFlat)
-                    if (expandAnimationEnabled) {
-                        notifyItemChanged(position)
-                        notifyItemRangeInserted(position + 1, sublistFlat.size)
+                    (adapter.models as MutableList).addAll(position + 1 - adapter.headerCount, sublistFlat)
+                    if (adapter.expandAnimationEnabled) {
+                        adapter.updateCallback.onChanged(position, 1, null)
+                        adapter.updateCallback.onInserted(position + 1, sublistFlat.size)
                     } else {
-                        notifyDataSetChanged()
+                        adapter.dispatchDataSetChanged()
                     }
                     if (scrollTop) {
-                        rv?.let {
+                        adapter.rv?.let {
                             it.scrollToPosition(position)
                             (it.layoutManager as? LinearLayoutManager)?.scrollToPositionWithOffset(position, 0)
                         }
@@ -1244,27 +2267,29 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
             val itemExpand = getModelOrNull<ItemExpand>()
 
             if (itemExpand?.itemExpand == false) return 0
+            adapter.checkModelsMutable()
             val position = if (bindingAdapterPosition == -1) layoutPosition else bindingAdapterPosition
 
-            onExpand?.invoke(this, false)
+            adapter.onExpand?.invoke(this, false)
 
             return if (itemExpand != null && itemExpand.itemExpand) {
                 val itemSublist = itemExpand.itemSublist
                 itemExpand.itemExpand = false
 
                 if (itemSublist.isNullOrEmpty()) {
-                    notifyItemChanged(position, itemExpand)
+                    adapter.updateCallback.onChanged(position, 1, itemExpand)
                     0
                 } else {
-                    val sublistFlat = flat(ArrayList(itemSublist), false, depth)
-                    (this@BindingAdapter.models as MutableList).subList(position + 1 - headerCount, position + 1 - headerCount + sublistFlat.size).clear()
-                    if (expandAnimationEnabled) {
-                        notifyItemChanged(position, itemExpand)
-                        notifyItemRangeRemoved(position + 1, sublistFlat.size)
+                    val collapseCount = adapter.countVisible(itemSublist, depth)
+                    val modelPosition = position + 1 - adapter.headerCount
+                    (adapter.models as MutableList).subList(modelPosition, modelPosition + collapseCount).clear()
+                    if (adapter.expandAnimationEnabled) {
+                        adapter.updateCallback.onChanged(position, 1, itemExpand)
+                        adapter.updateCallback.onRemoved(position + 1, collapseCount)
                     } else {
-                        notifyDataSetChanged()
+                        adapter.dispatchDataSetChanged()
                     }
-                    sublistFlat.size
+                    collapseCount
                 }
             } else {
                 0
@@ -1288,22 +2313,19 @@ open class BindingAdapter : RecyclerView.Adapter<BindingAdapter.BindingViewHolde
          * 查找分组中的父项位置
          * @return -1 表示不存在父项
          */
-        fun findParentPosition(): Int {
-            for (index in layoutPosition - 1 downTo 0) {
-                val item = models?.getOrNull(index) ?: break
-                if (item is ItemExpand && item.itemSublist?.contains(_data) == true) {
-                    return index
-                }
-            }
-            return -1
-        }
+        fun findParentPosition(): Int = adapter.findParentPosition(layoutPosition)
+
+        /**
+         * 查找当前条目在分组中的深度, 根节点为0
+         */
+        fun findDepth(): Int = adapter.findDepth(layoutPosition)
 
         /**
          * 查找分组中的父项ViewHolder
          * @return null表示不存在父项或没有显示在屏幕中
          */
         fun findParentViewHolder(): BindingViewHolder? {
-            return rv?.findViewHolderForLayoutPosition(findParentPosition()) as? BindingViewHolder
+            return adapter.rv?.findViewHolderForLayoutPosition(findParentPosition()) as? BindingViewHolder
         }
 
         //</editor-fold>
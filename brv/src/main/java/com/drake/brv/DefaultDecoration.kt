@@ -31,12 +31,14 @@ import androidx.annotation.LayoutRes
 import androidx.core.content.ContextCompat
 import androidx.recyclerview.widget.GridLayoutManager
 import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.ListUpdateCallback
 import androidx.recyclerview.widget.RecyclerView
 import androidx.recyclerview.widget.StaggeredGridLayoutManager
 import com.drake.brv.DefaultDecoration.Edge.Companion.computeEdge
 import com.drake.brv.annotaion.DividerOrientation
+import com.drake.brv.collection.SpanGroupTable
+import com.drake.brv.collection.StaggeredSpanTable
 import com.drake.brv.item.ItemExpand
-import kotlin.math.ceil
 import kotlin.math.roundToInt
 
 /**
@@ -107,6 +109,239 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
     private var marginEnd = 0
     private var divider: Drawable? = null
 
+    //<editor-fold desc="绘制缓存">
+
+    /** 绘制和计算间距时复用的对象, 避免滑动过程中每帧为每个条目创建对象 */
+    private val edge = Edge()
+    private val childBounds = Rect()
+    private val backgroundPaint = Paint().apply { style = Paint.Style.FILL }
+    //</editor-fold>
+
+    //<editor-fold desc="网格缓存">
+
+    /** 网格列表每个条目的span信息, 避免每个条目都从头遍历计算 */
+    private val spans = SpanGroupTable()
+
+    /** 瀑布流列表每列的首尾条目, 避免按条目数量估算首尾行 */
+    private val staggeredSpans = StaggeredSpanTable()
+
+    private var observedAdapter: RecyclerView.Adapter<*>? = null
+    private var observedParent: RecyclerView? = null
+
+    /** 数据变化后span信息失效, 删除条目后记录需要刷新间距的位置 */
+    private val adapterObserver = object : RecyclerView.AdapterDataObserver() {
+        override fun onChanged() {
+            if (!checkAttached()) return
+            spans.invalidate()
+            staggeredSpans.invalidate()
+            pendingRemoved = -1
+            edgeChangedStart = -1
+        }
+
+        override fun onItemRangeChanged(positionStart: Int, itemCount: Int) = spans.invalidate()
+        override fun onItemRangeChanged(positionStart: Int, itemCount: Int, payload: Any?) {
+            if (payload !== EDGE_CHANGED) spans.invalidate()
+        }
+
+        override fun onItemRangeInserted(positionStart: Int, itemCount: Int) {
+            if (!checkAttached()) return
+            spans.invalidate()
+            staggeredSpans.insert(positionStart, itemCount)
+            shiftEdgeChanged(positionStart)
+        }
+
+        override fun onItemRangeRemoved(positionStart: Int, itemCount: Int) {
+            if (!checkAttached()) return
+            spans.invalidate()
+            staggeredSpans.delete(positionStart, itemCount)
+            shiftEdgeChanged(positionStart)
+            pendingRemoved = if (pendingRemoved == -1) positionStart else minOf(pendingRemoved, positionStart)
+        }
+
+        override fun onItemRangeMoved(fromPosition: Int, toPosition: Int, itemCount: Int) {
+            if (!checkAttached()) return
+            spans.invalidate()
+            staggeredSpans.invalidate()
+        }
+    }
+
+    /** 列表脱离窗口时停止监听, 避免Adapter比列表存活更久时持有分割线 */
+    private val parentAttachListener = object : View.OnAttachStateChangeListener {
+        override fun onViewAttachedToWindow(v: View) = Unit
+        override fun onViewDetachedFromWindow(v: View) = stopObserve()
+    }
+
+    /**
+     * 监听列表当前Adapter的数据变化, Adapter被替换时重新监听
+     */
+    private fun observeAdapter(parent: RecyclerView) {
+        val adapter = parent.adapter
+        if (adapter === observedAdapter && parent === observedParent) return
+        stopObserve()
+        adapter?.registerAdapterDataObserver(adapterObserver)
+        parent.addOnAttachStateChangeListener(parentAttachListener)
+        observedAdapter = adapter
+        observedParent = parent
+        spans.invalidate()
+        staggeredSpans.invalidate()
+    }
+
+    private fun stopObserve() {
+        observedAdapter?.unregisterAdapterDataObserver(adapterObserver)
+        observedParent?.let {
+            it.removeOnAttachStateChangeListener(parentAttachListener)
+            it.removeCallbacks(edgeChangedRunnable)
+        }
+        observedAdapter = null
+        observedParent = null
+        pendingRemoved = -1
+        edgeChangedStart = -1
+    }
+
+    /**
+     * 分割线被[RecyclerView.removeItemDecoration]删除时没有回调, 在Adapter下次数据变化时停止监听
+     * @return 分割线是否仍属于监听的列表
+     */
+    private fun checkAttached(): Boolean {
+        val parent = observedParent ?: return false
+        for (i in 0 until parent.itemDecorationCount) {
+            if (parent.getItemDecorationAt(i) === this) return true
+        }
+        stopObserve()
+        return false
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="局部刷新">
+
+    /** 删除条目后等待刷新间距的最小位置, -1表示没有 */
+    private var pendingRemoved = -1
+
+    /** 最近一次计算间距时网格列表的行数, 网格分割线的间距按行数分配 */
+    private var offsetSpanGroupCount = -1
+
+    /**
+     * 插入条目后只刷新边缘状态发生变化的已有条目间距, 例如之前的最后一行不再是最后一行
+     * 代替[RecyclerView.invalidateItemDecorations]刷新全部条目间距, 和插入在同一次布局中完成
+     *
+     * @param callback 通过[ListUpdateCallback.onChanged]分发payload为[EDGE_CHANGED]的局部刷新
+     */
+    internal fun onItemRangeInserted(parent: RecyclerView, positionStart: Int, itemCount: Int, callback: ListUpdateCallback) {
+        val layoutManager = parent.layoutManager ?: return
+        dispatchEdgeChanged(layoutManager, positionStart, positionStart + itemCount) { start, count ->
+            callback.onChanged(start, count, EDGE_CHANGED)
+        }
+    }
+
+    /**
+     * 刷新删除条目后边缘状态发生变化的条目间距
+     */
+    private fun dispatchPendingRemoved(parent: RecyclerView) {
+        val position = pendingRemoved
+        if (position == -1) return
+        pendingRemoved = -1
+        val layoutManager = parent.layoutManager ?: return
+        dispatchEdgeChanged(layoutManager, position, position) { start, count ->
+            invalidateEdges(parent, start, count)
+        }
+    }
+
+    /** 等待局部刷新间距的范围, -1表示没有 */
+    private var edgeChangedStart = -1
+    private var edgeChangedEnd = -1
+
+    private val edgeChangedRunnable = Runnable {
+        val start = edgeChangedStart
+        edgeChangedStart = -1
+        val adapter = observedAdapter ?: return@Runnable
+        val end = minOf(edgeChangedEnd, adapter.itemCount)
+        if (start in 0 until end) adapter.notifyItemRangeChanged(start, end - start, EDGE_CHANGED)
+    }
+
+    /** 等待刷新期间插入/删除条目, 之后的条目位置发生平移, 扩大为之后的全部条目 */
+    private fun shiftEdgeChanged(positionStart: Int) {
+        if (edgeChangedStart == -1 || positionStart >= edgeChangedEnd) return
+        edgeChangedStart = minOf(edgeChangedStart, positionStart)
+        edgeChangedEnd = Int.MAX_VALUE
+    }
+
+    /**
+     * 刷新指定范围的条目间距
+     *
+     * 1. [BindingAdapter]会忽略payload为[EDGE_CHANGED]的刷新, 合并范围后在绘制结束后局部刷新
+     * 2. 其他Adapter收到未知payload会重新绑定条目, 依然刷新全部条目间距
+     */
+    private fun invalidateEdges(parent: RecyclerView, start: Int, count: Int) {
+        if (parent.adapter !is BindingAdapter) {
+            parent.invalidateItemDecorations()
+            return
+        }
+        if (edgeChangedStart == -1) {
+            edgeChangedStart = start
+            edgeChangedEnd = start + count
+            parent.post(edgeChangedRunnable)
+        } else {
+            edgeChangedStart = minOf(edgeChangedStart, start)
+            edgeChangedEnd = maxOf(edgeChangedEnd, start + count)
+        }
+    }
+
+    /**
+     * 刷新瀑布流列表中不再是所在列首尾条目的间距, 例如最后一个条目所在列又布局了新条目
+     */
+    private fun dispatchStaggeredChanged(parent: RecyclerView) {
+        val start = staggeredSpans.dirtyStart
+        if (start == -1 || parent.isComputingLayout) return
+        val count = staggeredSpans.dirtyEnd - start + 1
+        staggeredSpans.clearDirty()
+        invalidateEdges(parent, start, count)
+    }
+
+    /**
+     * 计算条目数量变化后边缘状态可能发生变化的已有条目
+     *
+     * @param start 插入/删除的位置
+     * @param end 插入/删除位置之后的第一个已有条目, 插入时为[start] + 插入数量, 删除时等于[start]
+     * @param block 受影响的条目范围, 可能回调两次
+     */
+    private inline fun dispatchEdgeChanged(
+        layoutManager: RecyclerView.LayoutManager,
+        start: Int,
+        end: Int,
+        block: (positionStart: Int, itemCount: Int) -> Unit
+    ) {
+        val itemCount = layoutManager.itemCount
+        adjustOrientation(layoutManager)
+        when (layoutManager) {
+            is GridLayoutManager -> {
+                spans.update(layoutManager)
+                val spanGroupCount = if (itemCount > 0) spans.spanGroupIndex(itemCount - 1) + 1 else 0
+                // 网格分割线按行数分配每行的间距, 行数变化后全部条目间距都会变化
+                var from = if (orientation == DividerOrientation.GRID && spanGroupCount != offsetSpanGroupCount) 0 else start
+                if (from > 0) {
+                    // 前一个条目所在行可能不再是最后一行
+                    val group = spans.spanGroupIndex(from - 1)
+                    from--
+                    while (from > 0 && spans.spanGroupIndex(from - 1) == group) from--
+                }
+                if (from < start) block(from, start - from)
+                // 之后的条目span位置可能全部变化
+                if (end < itemCount) block(end, itemCount - end)
+            }
+            is StaggeredGridLayoutManager -> {
+                val from = maxOf(0, start - layoutManager.spanCount)
+                if (from < start) block(from, start - from)
+                if (end < itemCount) block(end, itemCount - end)
+            }
+            else -> {
+                // 相邻的条目可能成为或者不再是首尾条目
+                if (start > 0) block(start - 1, 1)
+                if (end < itemCount) block(end, 1)
+            }
+        }
+    }
+    //</editor-fold>
+
     //<editor-fold desc="类型">
 
     var typePool: MutableList<Int>? = null
@@ -148,6 +383,7 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
      */
     fun setDrawable(drawable: Drawable) {
         divider = drawable
+        solidDivider = false
     }
 
     /**
@@ -157,6 +393,7 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
         val drawable = ContextCompat.getDrawable(context, drawableRes)
             ?: throw IllegalArgumentException("Drawable cannot be find")
         divider = drawable
+        solidDivider = false
     }
     //</editor-fold>
 
@@ -167,6 +404,7 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
      */
     fun setColor(@ColorInt color: Int) {
         divider = ColorDrawable(color)
+        solidDivider = true
     }
 
     /**
@@ -178,6 +416,7 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
     fun setColor(color: String) {
         val parseColor = Color.parseColor(color)
         divider = ColorDrawable(parseColor)
+        solidDivider = true
     }
 
     /**
@@ -189,6 +428,7 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
     fun setColorRes(@ColorRes color: Int) {
         val colorRes = ContextCompat.getColor(context, color)
         divider = ColorDrawable(colorRes)
+        solidDivider = true
     }
 
     private var background = Color.TRANSPARENT
@@ -285,6 +525,7 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
 
         val position = parent.getChildAdapterPosition(view)
         if (position == RecyclerView.NO_POSITION) return
+        observeAdapter(parent)
 
         val divider = divider
         val height = when {
@@ -302,7 +543,7 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
         }
 
         val reverseLayout = layoutManager.isReverseLayout
-        val edge = computeEdge(position, layoutManager, reverseLayout)
+        val edge = computeEdge(position, layoutManager, reverseLayout, spans, staggeredSpans, view, this.edge)
         adjustOrientation(layoutManager)
 
         when {
@@ -323,25 +564,26 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
                 }
 
                 val spanGroupCount = when (layoutManager) {
-                    is GridLayoutManager -> layoutManager.spanSizeLookup.getSpanGroupIndex(state.itemCount - 1, spanCount) + 1
-                    is StaggeredGridLayoutManager -> ceil(state.itemCount / spanCount.toFloat()).toInt()
+                    is GridLayoutManager -> (spans.spanGroupIndex(state.itemCount - 1) + 1).also { offsetSpanGroupCount = it }
                     else -> 1
                 }
 
                 val spanIndex = when (layoutManager) {
-                    is GridLayoutManager -> layoutManager.spanSizeLookup.getSpanIndex(position, spanCount)
-                    is StaggeredGridLayoutManager -> (layoutManager.findViewByPosition(position)?.layoutParams as StaggeredGridLayoutManager.LayoutParams).spanIndex
+                    is GridLayoutManager -> spans.spanIndex(position)
+                    is StaggeredGridLayoutManager -> (view.layoutParams as StaggeredGridLayoutManager.LayoutParams).let {
+                        if (it.isFullSpan) 0 else it.spanIndex
+                    }
                     else -> 0
                 }
 
                 val spanGroupIndex = when (layoutManager) {
-                    is GridLayoutManager -> layoutManager.spanSizeLookup.getSpanGroupIndex(position, spanCount)
-                    is StaggeredGridLayoutManager -> ceil((position + 1) / spanCount.toFloat()).toInt() - 1
+                    is GridLayoutManager -> spans.spanGroupIndex(position)
                     else -> 0
                 }
 
                 val spanSize = when (layoutManager) {
-                    is GridLayoutManager -> layoutManager.spanSizeLookup.getSpanSize(position)
+                    is GridLayoutManager -> spans.spanSize(position)
+                    is StaggeredGridLayoutManager -> if ((view.layoutParams as StaggeredGridLayoutManager.LayoutParams).isFullSpan) spanCount else 1
                     else -> 1
                 }
 
@@ -426,17 +668,92 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
     }
 
     override fun onDraw(canvas: Canvas, parent: RecyclerView, state: RecyclerView.State) {
-        val layoutManager = parent.layoutManager
-        if (layoutManager == null || divider == null) return
+        val layoutManager = parent.layoutManager ?: return
+        // 间距的局部刷新和是否绘制分割线无关
+        observeAdapter(parent)
+        dispatchPendingRemoved(parent)
+        dispatchStaggeredChanged(parent)
+        val divider = divider ?: return
 
         adjustOrientation(layoutManager)
         val reverseLayout = layoutManager.isReverseLayout
+        batchDivider = solidDivider
+        if (batchDivider) dividerPaint.color = (divider as ColorDrawable).color
 
         when (orientation) {
             DividerOrientation.HORIZONTAL -> drawHorizontal(canvas, parent, reverseLayout)
             DividerOrientation.VERTICAL -> drawVertical(canvas, parent, reverseLayout)
             DividerOrientation.GRID -> drawGrid(canvas, parent, reverseLayout)
         }
+
+        if (batchDivider) drawDividerLines(canvas)
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="纯色分割线">
+
+    /**
+     * 分割线为纯色时不逐个绘制, 先记录全部分割线, 最后水平和垂直分割线各通过一次[Canvas.drawLines]绘制
+     * 仅限通过[setColor]创建的[ColorDrawable], 外部传入的[Drawable]可能被着色(setTint)而无法获取着色后的颜色
+     */
+    private var solidDivider = false
+    private var batchDivider = false
+
+    /** 每条分割线依次为起点x/y和终点x/y, 线宽即[size] */
+    private var horizontalLines = FloatArray(64)
+    private var horizontalLinesSize = 0
+    private var verticalLines = FloatArray(64)
+    private var verticalLinesSize = 0
+    private val dividerPaint = Paint()
+
+    /**
+     * 绘制分割线, 纯色分割线只记录线段
+     */
+    private fun Drawable.drawDivider(canvas: Canvas, left: Int, top: Int, right: Int, bottom: Int) {
+        if (!batchDivider) {
+            setBounds(left, top, right, bottom)
+            draw(canvas)
+            return
+        }
+        if (left >= right || top >= bottom) return
+        when {
+            bottom - top == size -> {
+                val y = (top + bottom) / 2f
+                horizontalLines = horizontalLines.ensureCapacity(horizontalLinesSize + 4)
+                horizontalLinesSize = horizontalLines.putLine(horizontalLinesSize, left.toFloat(), y, right.toFloat(), y)
+            }
+            right - left == size -> {
+                val x = (left + right) / 2f
+                verticalLines = verticalLines.ensureCapacity(verticalLinesSize + 4)
+                verticalLinesSize = verticalLines.putLine(verticalLinesSize, x, top.toFloat(), x, bottom.toFloat())
+            }
+            // 宽高都不等于分割线宽度的区域不是线段, 直接绘制
+            else -> canvas.drawRect(left.toFloat(), top.toFloat(), right.toFloat(), bottom.toFloat(), dividerPaint)
+        }
+    }
+
+    private fun FloatArray.ensureCapacity(capacity: Int): FloatArray {
+        return if (capacity > size) copyOf(maxOf(capacity, size * 2)) else this
+    }
+
+    /** @return 写入后的数量 */
+    private fun FloatArray.putLine(index: Int, startX: Float, startY: Float, endX: Float, endY: Float): Int {
+        this[index] = startX
+        this[index + 1] = startY
+        this[index + 2] = endX
+        this[index + 3] = endY
+        return index + 4
+    }
+
+    /**
+     * 绘制记录的全部分割线, 每次绘制最多两次绘制调用
+     */
+    private fun drawDividerLines(canvas: Canvas) {
+        dividerPaint.strokeWidth = size.toFloat()
+        if (horizontalLinesSize > 0) canvas.drawLines(horizontalLines, 0, horizontalLinesSize, dividerPaint)
+        if (verticalLinesSize > 0) canvas.drawLines(verticalLines, 0, verticalLinesSize, dividerPaint)
+        horizontalLinesSize = 0
+        verticalLinesSize = 0
     }
     //</editor-fold>
 
@@ -481,14 +798,14 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
 
             val position = parent.getChildAdapterPosition(child)
             val layoutManager = parent.layoutManager ?: return
-            val edge = computeEdge(position, layoutManager, reverseLayout)
+            val edge = computeEdge(position, layoutManager, reverseLayout, spans, staggeredSpans, child, this.edge)
 
             if (orientation != DividerOrientation.GRID && !endVisible && (if (reverseLayout) edge.top else edge.bottom)) {
                 continue@loop
             }
 
             divider?.apply {
-                val decoratedBounds = Rect()
+                val decoratedBounds = childBounds
                 parent.getDecoratedBoundsWithMargins(child, decoratedBounds)
 
                 val firstTop: Int
@@ -512,26 +829,23 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
                 }
 
                 if (background != Color.TRANSPARENT) {
-                    val paint = Paint()
+                    val paint = backgroundPaint
                     paint.color = background
-                    paint.style = Paint.Style.FILL
+                    val rectLeft = parent.paddingLeft.toFloat()
+                    val rectRight = (parent.width - parent.paddingRight).toFloat()
 
                     if (startVisible && if (reverseLayout) edge.bottom else edge.top) {
-                        val firstRect = Rect(parent.paddingLeft, firstTop, parent.width - parent.paddingRight, firstBottom)
-                        canvas.drawRect(firstRect, paint)
+                        canvas.drawRect(rectLeft, firstTop.toFloat(), rectRight, firstBottom.toFloat(), paint)
                     }
 
-                    val rect = Rect(parent.paddingLeft, top, parent.width - parent.paddingRight, bottom)
-                    canvas.drawRect(rect, paint)
+                    canvas.drawRect(rectLeft, top.toFloat(), rectRight, bottom.toFloat(), paint)
                 }
 
                 if (startVisible && if (reverseLayout) edge.bottom else edge.top) {
-                    setBounds(left, firstTop, right, firstBottom)
-                    draw(canvas)
+                    drawDivider(canvas, left, firstTop, right, firstBottom)
                 }
 
-                setBounds(left, top, right, bottom)
-                draw(canvas)
+                drawDivider(canvas, left, top, right, bottom)
             }
         }
         canvas.restore()
@@ -568,14 +882,14 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
 
             val position = parent.getChildAdapterPosition(child)
             val layoutManager = parent.layoutManager ?: return
-            val edge = computeEdge(position, layoutManager, reverseLayout)
+            val edge = computeEdge(position, layoutManager, reverseLayout, spans, staggeredSpans, child, this.edge)
 
             if (orientation != DividerOrientation.GRID && !endVisible && edge.right) {
                 continue@loop
             }
 
             divider?.apply {
-                val decoratedBounds = Rect()
+                val decoratedBounds = childBounds
                 parent.getDecoratedBoundsWithMargins(child, decoratedBounds)
 
                 val firstRight =
@@ -586,26 +900,23 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
                 val left = if (intrinsicWidth == -1) right - size else right - intrinsicWidth
 
                 if (background != Color.TRANSPARENT) {
-                    val paint = Paint()
+                    val paint = backgroundPaint
                     paint.color = background
-                    paint.style = Paint.Style.FILL
+                    val rectTop = parent.paddingTop.toFloat()
+                    val rectBottom = (parent.height - parent.paddingBottom).toFloat()
 
                     if (startVisible && edge.left) {
-                        val firstRect = Rect(firstLeft, parent.paddingTop, firstRight, parent.height - parent.paddingBottom)
-                        canvas.drawRect(firstRect, paint)
+                        canvas.drawRect(firstLeft.toFloat(), rectTop, firstRight.toFloat(), rectBottom, paint)
                     }
 
-                    val rect = Rect(left, parent.paddingTop, right, parent.height - parent.paddingBottom)
-                    canvas.drawRect(rect, paint)
+                    canvas.drawRect(left.toFloat(), rectTop, right.toFloat(), rectBottom, paint)
                 }
 
                 if (startVisible && edge.left) {
-                    setBounds(firstLeft, top, firstRight, bottom)
-                    draw(canvas)
+                    drawDivider(canvas, firstLeft, top, firstRight, bottom)
                 }
 
-                setBounds(left, top, right, bottom)
-                draw(canvas)
+                drawDivider(canvas, left, top, right, bottom)
             }
         }
 
@@ -632,12 +943,9 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
             }
 
             val position = parent.getChildAdapterPosition(child)
-            if (position == RecyclerView.NO_POSITION) {
-                parent.invalidateItemDecorations()
-                continue@loop
-            }
+            if (position == RecyclerView.NO_POSITION) continue@loop
             val layoutManager = parent.layoutManager ?: return
-            val edge = computeEdge(position, layoutManager, reverseLayout)
+            val edge = computeEdge(position, layoutManager, reverseLayout, spans, staggeredSpans, child, this.edge)
 
             val divider = divider
             val height = when {
@@ -656,7 +964,8 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
 
             divider?.apply {
                 val layoutParams = child.layoutParams as RecyclerView.LayoutParams
-                val bounds = Rect(
+                val bounds = childBounds
+                bounds.set(
                     child.left + layoutParams.leftMargin,
                     child.top + layoutParams.topMargin,
                     child.right + layoutParams.rightMargin,
@@ -665,50 +974,38 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
 
                 // top
                 if (!endVisible && edge.right) {
-                    setBounds(bounds.left - width, bounds.top - height, bounds.right - marginEnd, bounds.top)
-                    draw(canvas)
+                    drawDivider(canvas, bounds.left - width, bounds.top - height, bounds.right - marginEnd, bounds.top)
                 } else if (!endVisible && !edge.top && edge.left) {
-                    setBounds(bounds.left + marginStart, bounds.top - height, bounds.right + width, bounds.top)
-                    draw(canvas)
+                    drawDivider(canvas, bounds.left + marginStart, bounds.top - height, bounds.right + width, bounds.top)
                 } else if (!edge.top || (startVisible && edge.top)) {
-                    setBounds(bounds.left - width, bounds.top - height, bounds.right + width, bounds.top)
-                    draw(canvas)
+                    drawDivider(canvas, bounds.left - width, bounds.top - height, bounds.right + width, bounds.top)
                 }
 
                 // bottom
                 if (!endVisible && edge.right) {
-                    setBounds(bounds.left - width, bounds.bottom, bounds.right - marginEnd, bounds.bottom + height)
-                    draw(canvas)
+                    drawDivider(canvas, bounds.left - width, bounds.bottom, bounds.right - marginEnd, bounds.bottom + height)
                 } else if (!endVisible && !edge.bottom && edge.left) {
-                    setBounds(bounds.left + marginStart, bounds.bottom, bounds.right + width, bounds.bottom + height)
-                    draw(canvas)
+                    drawDivider(canvas, bounds.left + marginStart, bounds.bottom, bounds.right + width, bounds.bottom + height)
                 } else if (!edge.bottom || (startVisible && edge.bottom)) {
-                    setBounds(bounds.left - width, bounds.bottom, bounds.right + width, bounds.bottom + height)
-                    draw(canvas)
+                    drawDivider(canvas, bounds.left - width, bounds.bottom, bounds.right + width, bounds.bottom + height)
                 }
 
                 // left
                 if (edge.top && !endVisible && !edge.left) {
-                    setBounds(bounds.left - width, bounds.top + marginStart, bounds.left, bounds.bottom)
-                    draw(canvas)
+                    drawDivider(canvas, bounds.left - width, bounds.top + marginStart, bounds.left, bounds.bottom)
                 } else if (edge.bottom && !endVisible && !edge.left) {
-                    setBounds(bounds.left - width, bounds.top, bounds.left, bounds.bottom - marginEnd)
-                    draw(canvas)
+                    drawDivider(canvas, bounds.left - width, bounds.top, bounds.left, bounds.bottom - marginEnd)
                 } else if (!edge.left || (endVisible && edge.left)) {
-                    setBounds(bounds.left - width, bounds.top, bounds.left, bounds.bottom)
-                    draw(canvas)
+                    drawDivider(canvas, bounds.left - width, bounds.top, bounds.left, bounds.bottom)
                 }
 
                 // right
                 if (edge.top && !endVisible && !edge.right) {
-                    setBounds(bounds.right, bounds.top + marginStart, bounds.right + width, bounds.bottom)
-                    draw(canvas)
+                    drawDivider(canvas, bounds.right, bounds.top + marginStart, bounds.right + width, bounds.bottom)
                 } else if (edge.bottom && !endVisible && !edge.right) {
-                    setBounds(bounds.right, bounds.top, bounds.right + width, bounds.bottom - marginEnd)
-                    draw(canvas)
+                    drawDivider(canvas, bounds.right, bounds.top, bounds.right + width, bounds.bottom - marginEnd)
                 } else if (!edge.right || (endVisible && edge.right)) {
-                    setBounds(bounds.right, bounds.top, bounds.right + width, bounds.bottom)
-                    draw(canvas)
+                    drawDivider(canvas, bounds.right, bounds.top, bounds.right + width, bounds.bottom)
                 }
             }
         }
@@ -716,6 +1013,11 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
         canvas.restore()
     }
 
+    internal companion object {
+        /** 仅刷新条目间距的payload, [BindingAdapter]收到后不会重新绑定条目 */
+        val EDGE_CHANGED = Any()
+    }
+
     /**
      * 列表条目是否靠近边缘的结算结果
      *
@@ -742,57 +1044,100 @@ class DefaultDecoration constructor(private val context: Context) : RecyclerView
                 position: Int,
                 layoutManager: RecyclerView.LayoutManager,
                 reverseLayout: Boolean
+            ): Edge = computeEdge(position, layoutManager, reverseLayout, null, null, null, Edge())
+
+            /**
+             * 计算指定条目的边缘位置, 结果写入[edge]而不创建新对象, 适合在绘制过程中频繁调用
+             * @param edge 计算结果写入该对象
+             * @return 即参数[edge]
+             */
+            fun computeEdge(
+                position: Int,
+                layoutManager: RecyclerView.LayoutManager,
+                reverseLayout: Boolean,
+                edge: Edge
+            ): Edge = computeEdge(position, layoutManager, reverseLayout, null, null, null, edge)
+
+            /**
+             * @param spans 网格列表的span信息缓存, null则通过SpanSizeLookup计算
+             * @param staggeredSpans 瀑布流列表每列的首尾条目, null则按条目数量估算首尾行
+             * @param view 条目视图, null则通过[RecyclerView.LayoutManager.findViewByPosition]查找
+             */
+            internal fun computeEdge(
+                position: Int,
+                layoutManager: RecyclerView.LayoutManager,
+                reverseLayout: Boolean,
+                spans: SpanGroupTable?,
+                staggeredSpans: StaggeredSpanTable?,
+                view: View?,
+                edge: Edge
             ): Edge {
 
                 val index = position + 1
                 val itemCount = layoutManager.itemCount
 
-                return Edge().apply {
+                return edge.apply {
+                    left = false
+                    top = false
+                    right = false
+                    bottom = false
+
                     when (layoutManager) {
                         is StaggeredGridLayoutManager -> {
                             val spanCount = layoutManager.spanCount
-                            val spanIndex = (layoutManager.findViewByPosition(position)?.layoutParams
-                                    as StaggeredGridLayoutManager.LayoutParams).spanIndex + 1
+                            val layoutParams = (view ?: layoutManager.findViewByPosition(position))?.layoutParams
+                                    as? StaggeredGridLayoutManager.LayoutParams
+                            val fullSpan = layoutParams?.isFullSpan == true
+                            val span = if (fullSpan) 0 else layoutParams?.spanIndex ?: 0
+                            val spanIndex = span + 1
+                            val spanEnd = if (fullSpan) spanCount else spanIndex
+
+                            // 只有首尾各spanCount个条目可能是所在列的首尾条目, 再由每列记录的首尾条目排除
+                            staggeredSpans?.record(position, span, fullSpan, spanCount, itemCount)
+                            val first = index <= spanCount && (staggeredSpans == null || staggeredSpans.isFirst(position, span, fullSpan))
+                            val last = index > itemCount - spanCount && (staggeredSpans == null || staggeredSpans.isLast(position, span, fullSpan))
 
                             if (layoutManager.orientation == RecyclerView.VERTICAL) {
                                 left = spanIndex == 1
-                                right = spanIndex == spanCount
-                                top = if (reverseLayout) index > itemCount - spanCount else index <= spanCount
-                                bottom = if (reverseLayout) index <= spanCount else index > itemCount - spanCount
+                                right = spanEnd == spanCount
+                                top = if (reverseLayout) last else first
+                                bottom = if (reverseLayout) first else last
                             } else {
-                                left = index <= spanCount
-                                right = index > itemCount - spanCount
-                                top = if (reverseLayout) spanIndex == spanCount else spanIndex == 1
-                                bottom = if (reverseLayout) spanIndex == 1 else spanIndex == spanCount
+                                left = first
+                                right = last
+                                top = if (reverseLayout) spanEnd == spanCount else spanIndex == 1
+                                bottom = if (reverseLayout) spanIndex == 1 else spanEnd == spanCount
                             }
                         }
                         is GridLayoutManager -> {
-                            val spanSizeLookup = layoutManager.spanSizeLookup
                             val spanCount = layoutManager.spanCount
-                            val spanGroupIndex = spanSizeLookup.getSpanGroupIndex(position, spanCount)
-                            val maxSpanGroupIndex = spanSizeLookup.getSpanGroupIndex(itemCount - 1, spanCount)
-                            val spanIndex = spanSizeLookup.getSpanIndex(position, spanCount) + 1
-                            val spanSize = spanSizeLookup.getSpanSize(position)
+                            val spanGroupIndex: Int
+                            val maxSpanGroupIndex: Int
+                            val firstGroup: Boolean
+                            val spanIndex: Int
+                            val spanSize: Int
+                            // 分别读取缓存和SpanSizeLookup, 避免可空的Int在绘制过程中装箱
+                            if (spans != null) {
+                                spans.update(layoutManager)
+                                spanGroupIndex = spans.spanGroupIndex(position)
+                                maxSpanGroupIndex = spans.spanGroupIndex(itemCount - 1)
+                                firstGroup = index <= spanCount && spanGroupIndex == spans.spanGroupIndex(position - 1)
+                                spanIndex = spans.spanIndex(position) + 1
+                                spanSize = spans.spanSize(position)
+                            } else {
+                                val spanSizeLookup = layoutManager.spanSizeLookup
+                                spanGroupIndex = spanSizeLookup.getSpanGroupIndex(position, spanCount)
+                                maxSpanGroupIndex = spanSizeLookup.getSpanGroupIndex(itemCount - 1, spanCount)
+                                firstGroup = index <= spanCount && spanGroupIndex == spanSizeLookup.getSpanGroupIndex(position - 1, spanCount)
+                                spanIndex = spanSizeLookup.getSpanIndex(position, spanCount) + 1
+                                spanSize = spanSizeLookup.getSpanSize(position)
+                            }
 
                             if (layoutManager.orientation == RecyclerView.VERTICAL) {
                                 left = spanIndex == 1
                                 right = spanIndex + spanSize - 1 == spanCount
-                                top = if (reverseLayout) {
-                                    spanGroupIndex == maxSpanGroupIndex
-                                } else {
-                                    index <= spanCount && spanGroupIndex == spanSizeLookup.getSpanGroupIndex(
-                                        position - 1,
-                                        spanCount
-                                    )
-                                }
-                                bottom = if (reverseLayout) {
-                                    index <= spanCount && spanGroupIndex == spanSizeLookup.getSpanGroupIndex(
-                                        position - 1,
-                                        spanCount
-                                    )
-                                } else {
-                                    spanGroupIndex == maxSpanGroupIndex
-                                }
+                                top = if (reverseLayout) spanGroupIndex == maxSpanGroupIndex else firstGroup
+                                bottom = if (reverseLayout) firstGroup else spanGroupIndex == maxSpanGroupIndex
                             } else {
                                 left = spanGroupIndex == 0
                                 right = spanGroupIndex == maxSpanGroupIndex
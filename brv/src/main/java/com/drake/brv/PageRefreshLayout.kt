@@ -21,7 +21,10 @@ import android.util.AttributeSet
 import android.view.View
 import android.view.View.OnLayoutChangeListener
 import androidx.annotation.IdRes
+import androidx.recyclerview.widget.LinearLayoutManager
 import androidx.recyclerview.widget.RecyclerView
+import androidx.recyclerview.widget.StaggeredGridLayoutManager
+import com.drake.brv.collection.PagedModels
 import com.drake.brv.listener.OnBindViewHolderListener
 import com.drake.brv.listener.OnMultiStateListener
 import com.drake.brv.utils.bindingAdapter
@@ -127,6 +130,12 @@ open class PageRefreshLayout : SmartRefreshLayout, OnRefreshLoadMoreListener {
                     }
                 }
             }
+            if (maxPages > 0 && firstIndex > startIndex && !loadingPrevious && onLoadPrevious != null && preloadIndex != -1 && position - adapter.headerCount < preloadIndex) {
+                loadingPrevious = true
+                post {
+                    onLoadPrevious?.invoke(this@PageRefreshLayout, firstIndex - 1)
+                }
+            }
         }
     }
 
@@ -139,6 +148,7 @@ open class PageRefreshLayout : SmartRefreshLayout, OnRefreshLoadMoreListener {
     private var realEnableRefresh = false
     private var onRefresh: (PageRefreshLayout.() -> Unit)? = null
     private var onLoadMore: (PageRefreshLayout.() -> Unit)? = null
+    private var onLoadPrevious: (PageRefreshLayout.(index: Int) -> Unit)? = null
 
     // <editor-fold desc="构造函数">
 
@@ -229,6 +239,23 @@ open class PageRefreshLayout : SmartRefreshLayout, OnRefreshLoadMoreListener {
      */
     var preloadIndex = PageRefreshLayout.preloadIndex
 
+    /**
+     * 窗口模式最多保留的分页数量, 0表示不限制
+     * 超过时删除离加载方向最远的一页数据, 该页仍有条目显示时延迟到其完全滑出屏幕后再删除, 因此列表当前显示的位置保持不变
+     * 滑动到列表顶部时通过[onLoadPrevious]重新加载被删除的分页
+     * 要求[BindingAdapter.models]为可变集合, 不支持[PagedModels]
+     * 长时间浏览时[BindingAdapter.models]数量保持固定, 内存占用和对比数据耗时不会持续增长
+     */
+    var maxPages = 0
+
+    /** 窗口模式下[BindingAdapter.models]中第一页的分页索引, [index]则为最后一页的下一页 */
+    var firstIndex = startIndex
+        private set
+
+    /** 窗口中每页的数据数量 */
+    private val pageSizes = ArrayDeque<Int>()
+    private var loadingPrevious = false
+
     /**
      * 触发刷新 (不包含下拉动画)
      */
@@ -260,7 +287,7 @@ open class PageRefreshLayout : SmartRefreshLayout, OnRefreshLoadMoreListener {
      *
      * 本方法只是简化分页列表数据赋值, 如果出现特别的需求请尝试自己更新rv数据集(即不使用本方法), 比如使用[BindingAdapter.models]
      *
-     * @param data 数据集
+     * @param data 数据集, 如果是[PagedModels]则直接赋值给[BindingAdapter.models]并关闭加载更多, 之后由[PagedModels]按需加载分页
      * @param adapter 假设PageRefreshLayout不能直接包裹RecyclerView, 请指定此参数. 但更推荐在布局中使用app:page_rv来指定列表
      * @param hasMore 在函数参数中返回布尔类型来判断是否还存在下一页数据, 默认值true表示始终存在
      * @param isEmpty 返回true表示数据为空, 将显示缺省页 -> 空布局, 默认以[data.isNullOrEmpty()]则为空
@@ -271,18 +298,26 @@ open class PageRefreshLayout : SmartRefreshLayout, OnRefreshLoadMoreListener {
         isEmpty: () -> Boolean = { data.isNullOrEmpty() },
         hasMore: BindingAdapter.() -> Boolean = { true },
     ) {
-        val refreshContent = this.refreshContent
-        val rv = this.rv
-        val adapterTemp = when {
-            adapter != null -> adapter
-            rv != null -> rv.bindingAdapter
-            refreshContent is RecyclerView -> refreshContent.bindingAdapter
-            else -> throw UnsupportedOperationException("Use parameter [adapter] on [addData] function or PageRefreshLayout direct wrap RecyclerView")
-        }
+        val adapterTemp = findAdapter(adapter)
 
         val isRefreshState = state == RefreshState.Refreshing || index == startIndex
 
+        if (data is PagedModels) {
+            adapterTemp.models = data
+            if (isEmpty()) {
+                showEmpty()
+                return
+            }
+            index = startIndex
+            if (isRefreshState) showContent(false) else finish(true, false)
+            return
+        }
+
+        val modelCount = if (isRefreshState) 0 else adapterTemp.modelCount
         if (isRefreshState) {
+            pageSizes.clear()
+            firstIndex = startIndex
+            loadingPrevious = false
             val models = adapterTemp.models
             if (models == null) {
                 adapterTemp.models = data
@@ -305,12 +340,165 @@ open class PageRefreshLayout : SmartRefreshLayout, OnRefreshLoadMoreListener {
             adapterTemp.addModels(data)
         }
 
+        if (maxPages > 0) {
+            pageSizes.addLast(adapterTemp.modelCount - modelCount)
+            trimFromStart = true
+            trimPages(adapterTemp)
+        }
+
         val hasMoreResult = adapterTemp.hasMore()
         index += 1
 
         if (isRefreshState) showContent(hasMoreResult) else finish(true, hasMoreResult)
     }
 
+
+    /**
+     * 窗口模式下添加上一页数据到列表顶部, 超过[maxPages]时删除最后一页
+     * 插入后列表当前显示的第一个条目及其偏移保持不变
+     * @param data 上一页数据, null或者空集合表示加载失败, 再次滑动到顶部时重新加载
+     * @param adapter 假设PageRefreshLayout不能直接包裹RecyclerView, 请指定此参数
+     */
+    fun addPreviousData(data: List<Any?>?, adapter: BindingAdapter? = null) {
+        loadingPrevious = false
+        if (data.isNullOrEmpty() || firstIndex <= startIndex) return
+        val adapterTemp = findAdapter(adapter)
+        requireMutableModels(adapterTemp)
+        val modelCount = adapterTemp.modelCount
+        val rv = adapterTemp.rv
+        val anchor = rv?.let { findFirstVisibleChild(it) }
+        val anchorPosition = anchor?.let { rv.getChildAdapterPosition(it) } ?: RecyclerView.NO_POSITION
+        val anchorOffset = if (anchor != null) offsetOf(rv, anchor) else 0
+        adapterTemp.addModels(data, index = 0)
+        val count = adapterTemp.modelCount - modelCount
+        pageSizes.addFirst(count)
+        firstIndex -= 1
+        if (rv != null && anchorPosition != RecyclerView.NO_POSITION && anchorPosition >= adapterTemp.headerCount) {
+            scrollToPositionWithOffset(rv, anchorPosition + count, anchorOffset)
+        }
+        trimFromStart = false
+        trimPages(adapterTemp)
+    }
+
+    /**
+     * 窗口模式下上一页加载失败或者取消时调用, 再次滑动到顶部时重新触发[onLoadPrevious]
+     * 等效于[addPreviousData]传入null
+     */
+    fun finishLoadPrevious() {
+        loadingPrevious = false
+    }
+
+    /** 最近一次加载的是下一页时删除第一页, 加载上一页时删除最后一页 */
+    private var trimFromStart = true
+
+    /** 列表停止滑动后删除已经完全滑出屏幕的多余分页 */
+    private val trimScrollListener = object : RecyclerView.OnScrollListener() {
+        override fun onScrollStateChanged(recyclerView: RecyclerView, newState: Int) {
+            if (newState != RecyclerView.SCROLL_STATE_IDLE || pageSizes.size <= maxPages) return
+            val adapter = recyclerView.adapter as? BindingAdapter ?: return
+            trimPages(adapter)
+        }
+    }
+
+    /**
+     * 分页数量超过[maxPages]时删除离加载方向最远的分页, 只删除完全不可见的分页, 其余的等待滑动停止后再次检查
+     */
+    private fun trimPages(adapter: BindingAdapter) {
+        if (maxPages <= 0 || pageSizes.size <= maxPages) return
+        val models = requireMutableModels(adapter)
+        val rv = adapter.rv
+        var firstVisible = Int.MAX_VALUE
+        var lastVisible = Int.MIN_VALUE
+        if (rv != null) {
+            rv.removeOnScrollListener(trimScrollListener)
+            rv.addOnScrollListener(trimScrollListener)
+            for (i in 0 until rv.childCount) {
+                val position = rv.getChildAdapterPosition(rv.getChildAt(i))
+                if (position == RecyclerView.NO_POSITION) continue
+                firstVisible = minOf(firstVisible, position)
+                lastVisible = maxOf(lastVisible, position)
+            }
+        }
+        val headerCount = adapter.headerCount
+        while (pageSizes.size > maxPages) {
+            if (trimFromStart) {
+                val count = pageSizes.first()
+                if (headerCount + count > firstVisible) return
+                pageSizes.removeFirst()
+                models.subList(0, count).clear()
+                adapter.updateCallback.onRemoved(headerCount, count)
+                firstIndex += 1
+            } else {
+                val count = pageSizes.last()
+                if (headerCount + models.size - count <= lastVisible) return
+                pageSizes.removeLast()
+                models.subList(models.size - count, models.size).clear()
+                adapter.updateCallback.onRemoved(headerCount + models.size, count)
+                index -= 1
+                setNoMoreData(false)
+            }
+        }
+    }
+
+    private fun requireMutableModels(adapter: BindingAdapter): MutableList<Any?> {
+        val models = adapter.models
+        if (models is PagedModels || models !is MutableList) {
+            throw UnsupportedOperationException("PageRefreshLayout.maxPages requires BindingAdapter.models to be a MutableList, current: ${models?.javaClass?.name}")
+        }
+        return models as MutableList<Any?>
+    }
+
+    /** 列表中位置最小的可见条目视图 */
+    private fun findFirstVisibleChild(rv: RecyclerView): View? {
+        var child: View? = null
+        var firstPosition = Int.MAX_VALUE
+        for (i in 0 until rv.childCount) {
+            val view = rv.getChildAt(i)
+            val position = rv.getChildAdapterPosition(view)
+            if (position != RecyclerView.NO_POSITION && position < firstPosition) {
+                firstPosition = position
+                child = view
+            }
+        }
+        return child
+    }
+
+    /** 条目视图距离列表起始边缘的偏移, 同[LinearLayoutManager.scrollToPositionWithOffset]的offset */
+    private fun offsetOf(rv: RecyclerView, child: View): Int {
+        val layoutManager = rv.layoutManager ?: return 0
+        val vertical = layoutManager.canScrollVertically()
+        val reverseLayout = when (layoutManager) {
+            is LinearLayoutManager -> layoutManager.reverseLayout
+            is StaggeredGridLayoutManager -> layoutManager.reverseLayout
+            else -> false
+        }
+        return when {
+            vertical && reverseLayout -> rv.height - rv.paddingBottom - layoutManager.getDecoratedBottom(child)
+            vertical -> layoutManager.getDecoratedTop(child) - rv.paddingTop
+            reverseLayout -> rv.width - rv.paddingRight - layoutManager.getDecoratedRight(child)
+            else -> layoutManager.getDecoratedLeft(child) - rv.paddingLeft
+        }
+    }
+
+    private fun scrollToPositionWithOffset(rv: RecyclerView, position: Int, offset: Int) {
+        when (val layoutManager = rv.layoutManager) {
+            is LinearLayoutManager -> layoutManager.scrollToPositionWithOffset(position, offset)
+            is StaggeredGridLayoutManager -> layoutManager.scrollToPositionWithOffset(position, offset)
+            else -> layoutManager?.scrollToPosition(position)
+        }
+    }
+
+    private fun findAdapter(adapter: BindingAdapter?): BindingAdapter {
+        val refreshContent = this.refreshContent
+        val rv = this.rv
+        return when {
+            adapter != null -> adapter
+            rv != null -> rv.bindingAdapter
+            refreshContent is RecyclerView -> refreshContent.bindingAdapter
+            else -> throw UnsupportedOperationException("Use parameter [adapter] on [addData] function or PageRefreshLayout direct wrap RecyclerView")
+        }
+    }
+
     // </editor-fold>
 
 
@@ -379,6 +567,16 @@ open class PageRefreshLayout : SmartRefreshLayout, OnRefreshLoadMoreListener {
         return this
     }
 
+    /**
+     * 窗口模式下滑动到列表顶部时回调, 加载被丢弃的上一页, 加载完成后调用[addPreviousData]
+     * @param block index 需要加载的分页索引
+     * @see maxPages
+     */
+    fun onLoadPrevious(block: PageRefreshLayout.(index: Int) -> Unit): PageRefreshLayout {
+        onLoadPrevious = block
+        return this
+    }
+
 
     /**
      * 监听多种状态, 不会拦截已有的刷新(onRefresh)和加载生命周期(onLoadMore)
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.annotaion
+
+/**
+ * 为数据模型生成字段变化掩码比较器, 需要添加注解处理器依赖 `kapt "com.github.liangjingkanji.BRV:brv-compiler:版本号"`
+ *
+ * 编译时在同一包下生成`模型类名_ChangeMask`类:
+ * 1. 每个字段对应一个掩码常量, 例如字段`avatarUrl`对应`AVATAR_URL`, 最多64个字段
+ * 2. `INSTANCE`为[com.drake.brv.listener.ChangeMaskComparator]实现, 比较新旧数据返回变化字段的掩码
+ *
+ * 字段需要可以在同一包下访问(非private或存在getter)
+ * @see com.drake.brv.listener.ChangeMaskDifferCallback
+ */
+@Target(AnnotationTarget.CLASS)
+@Retention(AnnotationRetention.BINARY)
+annotation class ChangeMask {
+
+    /**
+     * 不参与比较的字段
+     */
+    @Target(AnnotationTarget.FIELD)
+    @Retention(AnnotationRetention.BINARY)
+    annotation class Ignore
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.collection
+
+/**
+ * 以列表形式访问[PositionBitSet], 不复制集合
+ * 按升序排列, 修改列表即直接修改选中状态(不会回调选择事件), 添加已存在的position不会重复
+ */
+internal class CheckedPositionList(private val set: PositionBitSet) : AbstractMutableList<Int>() {
+
+    override val size: Int get() = set.size
+
+    override fun get(index: Int): Int {
+        if (index < 0 || index >= size) throw IndexOutOfBoundsException("index: $index, size: $size")
+        return set.nthSetBit(index)
+    }
+
+    override fun contains(element: Int): Boolean = element in set
+
+    override fun indexOf(element: Int): Int {
+        if (element !in set) return -1
+        var index = 0
+        var position = set.nextSetBit(0)
+        while (position != element) {
+            index++
+            position = set.nextSetBit(position + 1)
+        }
+        return index
+    }
+
+    override fun lastIndexOf(element: Int): Int = indexOf(element)
+
+    /** 集合按升序排列, 忽略[index] */
+    override fun add(index: Int, element: Int) {
+        set.add(element)
+    }
+
+    override fun removeAt(index: Int): Int {
+        val position = get(index)
+        set.remove(position)
+        return position
+    }
+
+    override fun set(index: Int, element: Int): Int {
+        val position = removeAt(index)
+        set.add(element)
+        return position
+    }
+
+    override fun clear() = set.clear()
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.collection
+
+import android.util.SparseIntArray
+
+/**
+ * 记录列表中每个position的类型, 并统计每种类型的条目数量
+ * 重建一次以后跟随列表的插入/删除/移动/更新增量维护, 查询某种类型的数量为常量时间
+ */
+internal class ItemTypeCounter {
+
+    private var types = IntArray(16)
+    private var size = 0
+    private val counts = SparseIntArray()
+
+    /** 是否需要重建, 失效期间不会增量维护 */
+    var invalid = true
+        private set
+
+    fun invalidate() {
+        invalid = true
+    }
+
+    /** 指定类型的条目数量 */
+    fun count(type: Int): Int = counts.get(type)
+
+    /**
+     * 重新统计全部条目的类型
+     * @param typeOf 返回指定position的类型
+     */
+    fun rebuild(itemCount: Int, typeOf: (position: Int) -> Int) {
+        size = 0
+        counts.clear()
+        invalid = false
+        insert(0, itemCount, typeOf)
+    }
+
+    fun insert(positionStart: Int, itemCount: Int, typeOf: (position: Int) -> Int) {
+        if (invalid) return
+        if (positionStart > size) return invalidate()
+        if (types.size < size + itemCount) {
+            types = types.copyOf(maxOf(size + itemCount, types.size * 2))
+        }
+        types.copyInto(types, positionStart + itemCount, positionStart, size)
+        for (position in positionStart until positionStart + itemCount) {
+            val type = typeOf(position)
+            types[position] = type
+            counts.put(type, counts.get(type) + 1)
+        }
+        size += itemCount
+    }
+
+    fun remove(positionStart: Int, itemCount: Int) {
+        if (invalid) return
+        val end = positionStart + itemCount
+        if (end > size) return invalidate()
+        for (position in positionStart until end) {
+            val type = types[position]
+            counts.put(type, counts.get(type) - 1)
+        }
+        types.copyInto(types, positionStart, end, size)
+        size -= itemCount
+    }
+
+    fun move(fromPosition: Int, toPosition: Int) {
+        if (invalid) return
+        if (fromPosition >= size || toPosition >= size) return invalidate()
+        val type = types[fromPosition]
+        if (fromPosition < toPosition) {
+            types.copyInto(types, fromPosition, fromPosition + 1, toPosition + 1)
+        } else {
+            types.copyInto(types, toPosition + 1, toPosition, fromPosition)
+        }
+        types[toPosition] = type
+    }
+
+    /**
+     * 条目更新后其数据模型可能被替换, 重新获取其类型
+     */
+    fun change(positionStart: Int, itemCount: Int, typeOf: (position: Int) -> Int) {
+        if (invalid) return
+        if (positionStart + itemCount > size) return invalidate()
+        for (position in positionStart until positionStart + itemCount) {
+            val oldType = types[position]
+            val type = typeOf(position)
+            if (oldType == type) continue
+            counts.put(oldType, counts.get(oldType) - 1)
+            counts.put(type, counts.get(type) + 1)
+            types[position] = type
+        }
+    }
+}
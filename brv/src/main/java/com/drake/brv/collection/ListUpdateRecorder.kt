@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.collection
+
+import androidx.recyclerview.widget.ListUpdateCallback
+
+/**
+ * 记录列表的增删改移操作, 稍后一次性分发
+ * 与上一次操作相邻的同类操作会被合并为一个范围, 同[androidx.recyclerview.widget.BatchingListUpdateCallback]
+ * @param onRecord 每次记录操作时回调, 用于及时清除依赖position的缓存
+ */
+internal class ListUpdateRecorder(private val onRecord: () -> Unit) : ListUpdateCallback {
+
+    private companion object {
+        const val INSERT = 0
+        const val REMOVE = 1
+        const val CHANGE = 2
+        const val MOVE = 3
+    }
+
+    /** 每个操作占用3个int: 类型, 位置, 数量(移动操作为目标位置) */
+    private var operations = IntArray(24)
+    private var size = 0
+    private val payloads = ArrayList<Any?>()
+
+    /** 是否需要全部刷新, 此时无需再记录其他操作 */
+    var dataSetChanged = false
+        private set
+
+    override fun onInserted(position: Int, count: Int) {
+        onRecord()
+        if (dataSetChanged || count <= 0) return
+        if (lastType() == INSERT) {
+            val lastPosition = operations[size - 2]
+            val lastCount = operations[size - 1]
+            if (position in lastPosition..lastPosition + lastCount) {
+                operations[size - 2] = minOf(position, lastPosition)
+                operations[size - 1] = lastCount + count
+                return
+            }
+        }
+        add(INSERT, position, count, null)
+    }
+
+    override fun onRemoved(position: Int, count: Int) {
+        onRecord()
+        if (dataSetChanged || count <= 0) return
+        if (lastType() == REMOVE) {
+            val lastPosition = operations[size - 2]
+            if (lastPosition in position..position + count) {
+                operations[size - 2] = position
+                operations[size - 1] += count
+                return
+            }
+        }
+        add(REMOVE, position, count, null)
+    }
+
+    override fun onMoved(fromPosition: Int, toPosition: Int) {
+        onRecord()
+        if (dataSetChanged || fromPosition == toPosition) return
+        add(MOVE, fromPosition, toPosition, null)
+    }
+
+    override fun onChanged(position: Int, count: Int, payload: Any?) {
+        onRecord()
+        if (dataSetChanged || count <= 0) return
+        if (lastType() == CHANGE && payloads[payloads.size - 1] === payload) {
+            val lastPosition = operations[size - 2]
+            val lastEnd = lastPosition + operations[size - 1]
+            if (position <= lastEnd && lastPosition <= position + count) {
+                val start = minOf(position, lastPosition)
+                operations[size - 2] = start
+                operations[size - 1] = maxOf(lastEnd, position + count) - start
+                return
+            }
+        }
+        add(CHANGE, position, count, payload)
+    }
+
+    /** 全部刷新, 之前记录的操作都会被丢弃 */
+    fun onDataSetChanged() {
+        onRecord()
+        dataSetChanged = true
+        size = 0
+        payloads.clear()
+    }
+
+    /** 按记录顺序分发全部操作 */
+    fun dispatchTo(callback: ListUpdateCallback) {
+        var index = 0
+        while (index < size) {
+            val position = operations[index + 1]
+            val count = operations[index + 2]
+            when (operations[index]) {
+                INSERT -> callback.onInserted(position, count)
+                REMOVE -> callback.onRemoved(position, count)
+                CHANGE -> callback.onChanged(position, count, payloads[index / 3])
+                MOVE -> callback.onMoved(position, count)
+            }
+            index += 3
+        }
+    }
+
+    private fun lastType(): Int = if (size == 0) -1 else operations[size - 3]
+
+    private fun add(type: Int, position: Int, count: Int, payload: Any?) {
+        if (size + 3 > operations.size) operations = operations.copyOf(operations.size * 2)
+        operations[size++] = type
+        operations[size++] = position
+        operations[size++] = count
+        payloads.add(payload)
+    }
+}
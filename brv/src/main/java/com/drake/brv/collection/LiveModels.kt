@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.collection
+
+import android.os.Handler
+import android.os.Looper
+import android.view.Choreographer
+import com.drake.brv.BindingAdapter
+
+/**
+ * 固定容量的实时数据集合(环形缓冲), 适用于聊天/日志等持续追加数据的列表, 可直接赋值给[BindingAdapter.models]
+ *
+ * 1. 追加数据耗时O(1), 可以在任意线程调用
+ * 2. 同一帧内追加的数据合并为一次插入刷新
+ * 3. 超过[capacity]时一次性删除最早的数据
+ *
+ * 该集合无法使用[BindingAdapter.mutable]/[BindingAdapter.addModels]修改, 请使用[append]
+ *
+ * @param capacity 最多保留的数据数量
+ */
+class LiveModels(val capacity: Int) : AbstractList<Any?>(), RandomAccess {
+
+    init {
+        require(capacity > 0) { "capacity must be greater than 0" }
+    }
+
+    private val items = arrayOfNulls<Any>(capacity)
+    private var head = 0
+    private var count = 0
+
+    /** 尚未刷新到列表的数据 */
+    private var pending = ArrayList<Any?>()
+    private var scheduled = false
+    private val lock = Any()
+
+    internal var adapter: BindingAdapter? = null
+    private val handler by lazy { Handler(Looper.getMainLooper()) }
+    private val frameCallback = Choreographer.FrameCallback { flush() }
+
+    override val size: Int get() = count
+
+    override fun get(index: Int): Any? {
+        if (index < 0 || index >= count) throw IndexOutOfBoundsException("index: $index, size: $count")
+        return items[(head + index) % capacity]
+    }
+
+    /**
+     * 追加数据, 将在下一帧刷新列表
+     */
+    fun append(model: Any?) {
+        synchronized(lock) {
+            pending.add(model)
+            scheduleFlush()
+        }
+    }
+
+    /**
+     * 追加多个数据, 将在下一帧刷新列表
+     */
+    fun appendAll(models: Collection<Any?>) {
+        if (models.isEmpty()) return
+        synchronized(lock) {
+            pending.addAll(models)
+            scheduleFlush()
+        }
+    }
+
+    /**
+     * 删除全部数据, 包括尚未刷新到列表的数据. 需在主线程调用
+     */
+    fun clear() {
+        synchronized(lock) {
+            pending.clear()
+        }
+        val removeCount = count
+        items.fill(null)
+        head = 0
+        count = 0
+        notifyRemoved(removeCount)
+    }
+
+    private fun scheduleFlush() {
+        if (scheduled) return
+        scheduled = true
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            Choreographer.getInstance().postFrameCallback(frameCallback)
+        } else {
+            handler.post { Choreographer.getInstance().postFrameCallback(frameCallback) }
+        }
+    }
+
+    /**
+     * 将本帧追加的数据写入缓冲区, 先删除超出容量的最早数据再插入新数据
+     */
+    private fun flush() {
+        val appended = synchronized(lock) {
+            scheduled = false
+            pending.also { pending = ArrayList() }
+        }
+        if (appended.isEmpty()) return
+        val added = if (appended.size > capacity) appended.subList(appended.size - capacity, appended.size) else appended
+
+        val removeCount = maxOf(0, count + added.size - capacity)
+        for (index in 0 until removeCount) {
+            items[(head + index) % capacity] = null
+        }
+        head = (head + removeCount) % capacity
+        count -= removeCount
+        notifyRemoved(removeCount)
+
+        for (model in added) {
+            items[(head + count) % capacity] = model
+            count++
+        }
+        val adapter = adapter ?: return
+        adapter.updateCallback.onInserted(adapter.headerCount + count - added.size, added.size)
+    }
+
+    private fun notifyRemoved(removeCount: Int) {
+        if (removeCount == 0) return
+        val adapter = adapter ?: return
+        adapter.updateCallback.onRemoved(adapter.headerCount, removeCount)
+    }
+}
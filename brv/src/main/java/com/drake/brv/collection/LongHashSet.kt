@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.collection
+
+/**
+ * 基本类型long的哈希集合(开放寻址), 避免装箱
+ */
+internal class LongHashSet {
+
+    /** 0作为空槽位, 元素0单独记录 */
+    private var keys = LongArray(16)
+    private var mask = keys.size - 1
+    private var hasZero = false
+
+    /** 元素数量 */
+    var size = 0
+        private set
+
+    operator fun contains(key: Long): Boolean {
+        if (key == 0L) return hasZero
+        var index = indexOf(key)
+        while (true) {
+            val k = keys[index]
+            if (k == 0L) return false
+            if (k == key) return true
+            index = (index + 1) and mask
+        }
+    }
+
+    /**
+     * @return 集合是否发生变化
+     */
+    fun add(key: Long): Boolean {
+        if (key == 0L) {
+            if (hasZero) return false
+            hasZero = true
+            size++
+            return true
+        }
+        var index = indexOf(key)
+        while (true) {
+            val k = keys[index]
+            if (k == 0L) break
+            if (k == key) return false
+            index = (index + 1) and mask
+        }
+        keys[index] = key
+        if (++size * 2 > keys.size) resize(keys.size * 2)
+        return true
+    }
+
+    /**
+     * @return 集合是否发生变化
+     */
+    fun remove(key: Long): Boolean {
+        if (key == 0L) {
+            if (!hasZero) return false
+            hasZero = false
+            size--
+            return true
+        }
+        var gap = indexOf(key)
+        while (true) {
+            val k = keys[gap]
+            if (k == 0L) return false
+            if (k == key) break
+            gap = (gap + 1) and mask
+        }
+        // 向前移动后续冲突的元素填补空位, 保证查找链不断开
+        var index = (gap + 1) and mask
+        while (true) {
+            val k = keys[index]
+            if (k == 0L) break
+            val home = indexOf(k)
+            val reachable = if (gap <= index) home in (gap + 1)..index else home > gap || home <= index
+            if (!reachable) {
+                keys[gap] = k
+                gap = index
+            }
+            index = (index + 1) and mask
+        }
+        keys[gap] = 0L
+        size--
+        return true
+    }
+
+    fun clear() {
+        keys.fill(0L)
+        hasZero = false
+        size = 0
+    }
+
+    fun toLongArray(): LongArray {
+        val array = LongArray(size)
+        var count = 0
+        if (hasZero) array[count++] = 0L
+        for (k in keys) if (k != 0L) array[count++] = k
+        return array
+    }
+
+    private fun indexOf(key: Long): Int {
+        val hash = key * -7046029254386353131L
+        return (hash xor (hash ushr 32)).toInt() and mask
+    }
+
+    private fun resize(capacity: Int) {
+        val oldKeys = keys
+        keys = LongArray(capacity)
+        mask = capacity - 1
+        for (k in oldKeys) {
+            if (k == 0L) continue
+            var index = indexOf(k)
+            while (keys[index] != 0L) index = (index + 1) and mask
+            keys[index] = k
+        }
+    }
+}
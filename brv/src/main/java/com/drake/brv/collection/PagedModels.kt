@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.collection
+
+import android.content.ComponentCallbacks2
+import android.content.Context
+import android.content.res.Configuration
+import android.os.Handler
+import android.os.Looper
+import com.drake.brv.BindingAdapter
+import com.drake.brv.PageRefreshLayout
+import kotlin.math.abs
+
+/**
+ * 已知总数的分页数据集合, 可直接赋值给[BindingAdapter.models]
+ *
+ * 1. 列表始终显示[totalCount]个条目, 未加载的位置返回占位数据
+ * 2. 绑定条目时自动加载其附近的分页, 加载完成后刷新对应范围
+ * 3. 最多保留[maxPages]个分页, 超过时或者内存不足时丢弃距离当前位置最远的分页, 无论滑动多远内存占用都是固定的
+ *
+ * 该集合不可修改, 即无法使用[BindingAdapter.mutable]/[BindingAdapter.addModels]/分组展开折叠/侧滑删除和拖拽, 这些操作会抛出[UnsupportedOperationException]
+ * 数据总数变化时请重新创建
+ *
+ * @param totalCount 数据总数
+ * @param pageSize 每页数量
+ * @param maxPages 最多保留的分页数量
+ * @param prefetchDistance 距离未加载的分页多少个条目时开始加载
+ * @param placeholder 未加载位置的占位数据, 需要通过[BindingAdapter.addType]添加其布局
+ * @param loader 加载分页, 参数page从[PageRefreshLayout.startIndex]开始, 加载完成后调用[setPage], 加载失败调用[setPageFailed]
+ */
+class PagedModels(
+    val totalCount: Int,
+    val pageSize: Int,
+    private val maxPages: Int = 8,
+    private val prefetchDistance: Int = pageSize / 2,
+    private val placeholder: (position: Int) -> Any? = { Placeholder },
+    private val loader: PagedModels.(page: Int) -> Unit
+) : AbstractList<Any?>(), ComponentCallbacks2 {
+
+    /** 默认的占位数据 */
+    object Placeholder
+
+    /** 分页索引起始值, 同[PageRefreshLayout.index] */
+    val startIndex = PageRefreshLayout.startIndex
+
+    /** 分页数量 */
+    val pageCount: Int = (totalCount + pageSize - 1) / pageSize
+
+    /** 当前位置及其预加载范围需要的分页数量, 内存不足时最少保留该数量的分页 */
+    private val minPages: Int = minOf(maxPages, 1 + (2 * prefetchDistance + pageSize - 1) / pageSize).coerceAtLeast(1)
+
+    /** 已加载的分页, 键为从0开始的分页序号 */
+    private val pages = HashMap<Int, List<Any?>>()
+    private val requestedPages = HashSet<Int>()
+
+    /** 最近一次绑定的位置, 距离该位置越远的分页越先被丢弃 */
+    private var lastPosition = 0
+
+    internal var adapter: BindingAdapter? = null
+    private var context: Context? = null
+    private val handler by lazy { Handler(Looper.getMainLooper()) }
+
+    override val size: Int get() = totalCount
+
+    override fun get(index: Int): Any? {
+        if (index < 0 || index >= totalCount) throw IndexOutOfBoundsException("index: $index, size: $totalCount")
+        val page = pages[index / pageSize] ?: return placeholder(index)
+        return page.getOrElse(index % pageSize) { placeholder(index) }
+    }
+
+    /**
+     * 指定位置的数据是否已加载
+     */
+    fun isLoaded(position: Int): Boolean = pages.containsKey(position / pageSize)
+
+    /**
+     * 加载[position]附近的分页, 绑定条目时会自动调用
+     */
+    fun loadAround(position: Int) {
+        if (position < 0 || position >= totalCount) return
+        lastPosition = position
+        request(position / pageSize)
+        request(minOf(position + prefetchDistance, totalCount - 1) / pageSize)
+        request(maxOf(position - prefetchDistance, 0) / pageSize)
+    }
+
+    /**
+     * 分页加载完成, 刷新该分页范围内的条目
+     * @param page 分页索引, 即[loader]的参数
+     * @param models 分页数据
+     */
+    fun setPage(page: Int, models: List<Any?>) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            handler.post { setPage(page, models) }
+            return
+        }
+        val pageIndex = page - startIndex
+        if (pageIndex < 0 || pageIndex >= pageCount) return
+        requestedPages.remove(pageIndex)
+        pages[pageIndex] = models
+        notifyPageChanged(pageIndex)
+        trimToPages(maxPages, pageIndex)
+    }
+
+    /**
+     * 分页加载失败, 再次绑定到该分页的条目时会重新加载
+     * @param page 分页索引, 即[loader]的参数
+     */
+    fun setPageFailed(page: Int) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            handler.post { setPageFailed(page) }
+            return
+        }
+        requestedPages.remove(page - startIndex)
+    }
+
+    /**
+     * 丢弃距离当前位置最远的分页, 直到剩余[count]个分页
+     * 被丢弃的分页会恢复为占位数据, 再次绑定时重新加载
+     */
+    fun trimToPages(count: Int) {
+        trimToPages(count, lastPosition / pageSize)
+    }
+
+    private fun trimToPages(count: Int, keepPage: Int) {
+        val currentPage = lastPosition / pageSize
+        while (pages.size > maxOf(count, 1)) {
+            var farthestPage = -1
+            var farthestDistance = -1
+            for (page in pages.keys) {
+                if (page == keepPage || page == currentPage) continue
+                val distance = abs(page - currentPage)
+                if (distance > farthestDistance) {
+                    farthestPage = page
+                    farthestDistance = distance
+                }
+            }
+            if (farthestPage == -1) return
+            pages.remove(farthestPage)
+            notifyPageChanged(farthestPage)
+        }
+    }
+
+    private fun request(pageIndex: Int) {
+        if (pages.containsKey(pageIndex) || !requestedPages.add(pageIndex)) return
+        loader(pageIndex + startIndex)
+    }
+
+    private fun notifyPageChanged(pageIndex: Int) {
+        val adapter = adapter ?: return
+        val positionStart = pageIndex * pageSize
+        adapter.updateCallback.onChanged(adapter.headerCount + positionStart, minOf(pageSize, totalCount - positionStart), PAGE_CHANGED)
+    }
+
+    //<editor-fold desc="内存不足">
+    internal fun registerComponentCallbacks(context: Context?) {
+        if (context == null || this.context != null) return
+        this.context = context.applicationContext.also {
+            it.registerComponentCallbacks(this)
+        }
+    }
+
+    internal fun unregisterComponentCallbacks() {
+        context?.unregisterComponentCallbacks(this)
+        context = null
+    }
+
+    override fun onTrimMemory(level: Int) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) trimToPages(maxOf(minPages, maxPages / 2))
+    }
+
+    override fun onLowMemory() {
+        trimToPages(minPages)
+    }
+
+    override fun onConfigurationChanged(newConfig: Configuration) = Unit
+    //</editor-fold>
+
+    internal companion object {
+        /**
+         * 分页加载/丢弃时刷新条目的payload, 条目会完整绑定新的数据
+         * 使用payload刷新时[androidx.recyclerview.widget.DefaultItemAnimator]复用同一个ViewHolder, 不会执行淡入淡出的替换动画
+         */
+        val PAGE_CHANGED = Any()
+    }
+}
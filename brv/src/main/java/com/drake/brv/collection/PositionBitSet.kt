@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.collection
+
+/**
+ * 位图存储的position集合, 用于记录列表的选中状态
+ *
+ * 1. 查询/添加/删除单个position为常量时间
+ * 2. 批量选中/取消/反选按64位一组处理
+ * 3. 列表插入/删除/移动条目时可以平移之后的position, 保证选中状态跟随条目
+ */
+internal class PositionBitSet {
+
+    private var words = LongArray(1)
+
+    /** 集合中position的数量 */
+    var size = 0
+        private set
+
+    operator fun contains(position: Int): Boolean {
+        if (position < 0) return false
+        val wordIndex = position ushr 6
+        return wordIndex < words.size && words[wordIndex] and (1L shl position) != 0L
+    }
+
+    /**
+     * 添加position
+     * @return 集合是否发生变化
+     */
+    fun add(position: Int): Boolean {
+        if (contains(position)) return false
+        ensureCapacity(position + 1)
+        words[position ushr 6] = words[position ushr 6] or (1L shl position)
+        size++
+        return true
+    }
+
+    /**
+     * 删除position
+     * @return 集合是否发生变化
+     */
+    fun remove(position: Int): Boolean {
+        if (!contains(position)) return false
+        words[position ushr 6] = words[position ushr 6] and (1L shl position).inv()
+        size--
+        return true
+    }
+
+    fun clear() {
+        words.fill(0L)
+        size = 0
+    }
+
+    /**
+     * 从[from]开始查找下一个存在的position
+     * @return -1 表示不存在
+     */
+    fun nextSetBit(from: Int): Int {
+        if (from < 0) return nextSetBit(0)
+        var wordIndex = from ushr 6
+        if (wordIndex >= words.size) return -1
+        var word = words[wordIndex] and (-1L shl from)
+        while (true) {
+            if (word != 0L) return (wordIndex shl 6) + java.lang.Long.numberOfTrailingZeros(word)
+            if (++wordIndex == words.size) return -1
+            word = words[wordIndex]
+        }
+    }
+
+    /**
+     * 按升序排列的第[n]个position, 按64位一组统计数量, 不需要逐个遍历
+     * @return -1 表示不存在
+     */
+    fun nthSetBit(n: Int): Int {
+        if (n < 0 || n >= size) return -1
+        var remaining = n
+        for (wordIndex in words.indices) {
+            var word = words[wordIndex]
+            val count = java.lang.Long.bitCount(word)
+            if (remaining >= count) {
+                remaining -= count
+                continue
+            }
+            while (remaining-- > 0) word = word and (word - 1)
+            return (wordIndex shl 6) + java.lang.Long.numberOfTrailingZeros(word)
+        }
+        return -1
+    }
+
+    /**
+     * 最大的position
+     * @return -1 表示集合为空
+     */
+    fun lastSetBit(): Int = length() - 1
+
+    /** 按升序返回全部position */
+    fun toList(): List<Int> {
+        val list = ArrayList<Int>(size)
+        var position = nextSetBit(0)
+        while (position != -1) {
+            list.add(position)
+            position = nextSetBit(position + 1)
+        }
+        return list
+    }
+
+    //<editor-fold desc="批量操作">
+
+    /**
+     * 添加[from, to)范围内的position
+     * @return 本次新增的position
+     */
+    fun addRange(from: Int, to: Int): IntArray {
+        ensureCapacity(to)
+        return updateRange(from, to) { word, mask -> word or mask }
+    }
+
+    /**
+     * 删除[from, to)范围内的position
+     * @return 本次删除的position
+     */
+    fun removeRange(from: Int, to: Int): IntArray {
+        return updateRange(from, minOf(to, words.size shl 6)) { word, mask -> word and mask.inv() }
+    }
+
+    /**
+     * 反转[from, to)范围内的position
+     * @return 本次发生变化的position
+     */
+    fun flipRange(from: Int, to: Int): IntArray {
+        ensureCapacity(to)
+        return updateRange(from, to) { word, mask -> word xor mask }
+    }
+
+    /**
+     * 按64位一组更新范围内的位图, 并收集发生变化的position
+     */
+    private inline fun updateRange(from: Int, to: Int, update: (word: Long, mask: Long) -> Long): IntArray {
+        if (from >= to) return IntArray(0)
+        val startWord = from ushr 6
+        val endWord = (to - 1) ushr 6
+        var changed = IntArray(16)
+        var changedCount = 0
+        for (wordIndex in startWord..endWord) {
+            var mask = -1L
+            if (wordIndex == startWord) mask = mask and (-1L shl from)
+            if (wordIndex == endWord) mask = mask and (-1L ushr (63 - ((to - 1) and 63)))
+            val oldWord = words[wordIndex]
+            val newWord = update(oldWord, mask)
+            var diff = oldWord xor newWord
+            if (diff == 0L) continue
+            words[wordIndex] = newWord
+            size += java.lang.Long.bitCount(newWord) - java.lang.Long.bitCount(oldWord)
+            if (changedCount + java.lang.Long.bitCount(diff) > changed.size) {
+                changed = changed.copyOf(maxOf(changed.size * 2, changedCount + 64))
+            }
+            while (diff != 0L) {
+                changed[changedCount++] = (wordIndex shl 6) + java.lang.Long.numberOfTrailingZeros(diff)
+                diff = diff and (diff - 1)
+            }
+        }
+        return changed.copyOf(changedCount)
+    }
+    //</editor-fold>
+
+    //<editor-fold desc="平移">
+
+    /**
+     * 在[position]插入[count]个条目, 大于等于[position]的position都会向后平移[count]
+     */
+    fun insert(position: Int, count: Int) {
+        if (count <= 0) return
+        val length = length()
+        if (position >= length) return
+        val oldWords = words
+        words = LongArray(wordCount(length + count))
+        oldWords.copyInto(words, 0, 0, minOf(oldWords.size, words.size))
+        clearFrom(position)
+        copyBits(oldWords, position, length, position + count)
+    }
+
+    /**
+     * 删除[position]开始的[count]个条目, 之后的position都会向前平移[count]
+     */
+    fun delete(position: Int, count: Int) {
+        if (count <= 0) return
+        val length = length()
+        if (position >= length) return
+        val end = minOf(position + count, length)
+        size -= countRange(position, end)
+        val oldWords = words.copyOf()
+        clearFrom(position)
+        copyBits(oldWords, end, length, position)
+    }
+
+    /**
+     * 将[from]的条目移动到[to], 同[androidx.recyclerview.widget.RecyclerView.Adapter.notifyItemMoved]
+     */
+    fun move(from: Int, to: Int) {
+        if (from == to) return
+        val checked = contains(from)
+        delete(from, 1)
+        insert(to, 1)
+        if (checked) add(to)
+    }
+
+    /** 最大position + 1 */
+    private fun length(): Int {
+        for (wordIndex in words.indices.reversed()) {
+            val word = words[wordIndex]
+            if (word != 0L) return (wordIndex shl 6) + 64 - java.lang.Long.numberOfLeadingZeros(word)
+        }
+        return 0
+    }
+
+    private fun countRange(from: Int, to: Int): Int {
+        var count = 0
+        var position = nextSetBit(from)
+        while (position != -1 && position < to) {
+            count++
+            position = nextSetBit(position + 1)
+        }
+        return count
+    }
+
+    /** 清除大于等于[from]的全部position, 不更新[size] */
+    private fun clearFrom(from: Int) {
+        val wordIndex = from ushr 6
+        if (wordIndex >= words.size) return
+        words[wordIndex] = words[wordIndex] and (-1L shl from).inv()
+        words.fill(0L, wordIndex + 1)
+    }
+
+    /**
+     * 将[src]中[from, to)范围的位按64位一组复制到[words]中以[dest]开始的位置, 目标范围需已清空
+     */
+    private fun copyBits(src: LongArray, from: Int, to: Int, dest: Int) {
+        var offset = 0
+        while (from + offset < to) {
+            val bitCount = minOf(64, to - from - offset)
+            var chunk = readWord(src, from + offset)
+            if (bitCount < 64) chunk = chunk and (1L shl bitCount) - 1
+            writeWord(dest + offset, chunk)
+            offset += 64
+        }
+    }
+
+    /** 读取[src]中以[bit]开始的64位 */
+    private fun readWord(src: LongArray, bit: Int): Long {
+        val wordIndex = bit ushr 6
+        val shift = bit and 63
+        val low = if (wordIndex < src.size) src[wordIndex] ushr shift else 0L
+        if (shift == 0) return low
+        val high = if (wordIndex + 1 < src.size) src[wordIndex + 1] shl (64 - shift) else 0L
+        return low or high
+    }
+
+    /** 将64位合并写入[words]中以[bit]开始的位置 */
+    private fun writeWord(bit: Int, chunk: Long) {
+        if (chunk == 0L) return
+        val wordIndex = bit ushr 6
+        val shift = bit and 63
+        words[wordIndex] = words[wordIndex] or (chunk shl shift)
+        if (shift != 0) {
+            val high = chunk ushr (64 - shift)
+            if (high != 0L) words[wordIndex + 1] = words[wordIndex + 1] or high
+        }
+    }
+
+    //</editor-fold>
+
+    private fun wordCount(bitCount: Int) = maxOf(1, (bitCount + 63) ushr 6)
+
+    private fun ensureCapacity(bitCount: Int) {
+        val wordCount = wordCount(bitCount)
+        if (wordCount > words.size) {
+            words = words.copyOf(maxOf(wordCount, words.size * 2))
+        }
+    }
+}
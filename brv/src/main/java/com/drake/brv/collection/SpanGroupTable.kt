@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.collection
+
+import androidx.recyclerview.widget.GridLayoutManager
+
+/**
+ * 网格列表中每个position的spanIndex/spanGroupIndex/spanSize
+ * 一次遍历计算全部条目, 之后查询为常量时间, 计算结果与[GridLayoutManager.SpanSizeLookup]一致
+ * 数据变化后需要调用[invalidate], 超出范围的position直接使用SpanSizeLookup计算
+ */
+internal class SpanGroupTable {
+
+    private var spanIndexes = IntArray(0)
+    private var spanGroupIndexes = IntArray(0)
+    private var spanSizes = IntArray(0)
+
+    /** 已计算的条目数量, -1表示需要重新计算 */
+    private var count = -1
+    private var spanCount = 0
+    private var lookup: GridLayoutManager.SpanSizeLookup? = null
+
+    fun invalidate() {
+        count = -1
+    }
+
+    /**
+     * 条目数量/spanCount/SpanSizeLookup变化或者已失效时重新计算全部条目
+     */
+    fun update(layoutManager: GridLayoutManager) {
+        val itemCount = layoutManager.itemCount
+        val spanCount = layoutManager.spanCount
+        val lookup = layoutManager.spanSizeLookup
+        if (count == itemCount && this.spanCount == spanCount && this.lookup === lookup) return
+        this.spanCount = spanCount
+        this.lookup = lookup
+        if (spanSizes.size < itemCount) {
+            val capacity = maxOf(itemCount, spanSizes.size * 2)
+            spanIndexes = IntArray(capacity)
+            spanGroupIndexes = IntArray(capacity)
+            spanSizes = IntArray(capacity)
+        }
+        // 同SpanSizeLookup.getSpanIndex/getSpanGroupIndex, 逐个累加span
+        var span = 0
+        var group = 0
+        for (position in 0 until itemCount) {
+            val size = lookup.getSpanSize(position)
+            if (span + size <= spanCount) {
+                spanIndexes[position] = span
+                spanGroupIndexes[position] = group
+            } else {
+                spanIndexes[position] = 0
+                spanGroupIndexes[position] = group + 1
+            }
+            spanSizes[position] = size
+            span += size
+            if (span == spanCount) {
+                span = 0
+                group++
+            } else if (span > spanCount) {
+                span = size
+                group++
+            }
+        }
+        count = itemCount
+    }
+
+    fun spanIndex(position: Int): Int {
+        return if (position in 0 until count) spanIndexes[position] else lookup!!.getSpanIndex(position, spanCount)
+    }
+
+    fun spanGroupIndex(position: Int): Int {
+        return if (position in 0 until count) spanGroupIndexes[position] else lookup!!.getSpanGroupIndex(position, spanCount)
+    }
+
+    fun spanSize(position: Int): Int {
+        return if (position in 0 until count) spanSizes[position] else lookup!!.getSpanSize(position)
+    }
+}
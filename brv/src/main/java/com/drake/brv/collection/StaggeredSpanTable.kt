@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.collection
+
+/**
+ * 记录瀑布流列表每列已布局的第一个和最后一个条目
+ *
+ * 1. 条目布局/绘制时从LayoutParams读取所在的列逐个记录, 判断条目是否为某列首尾条目为常量时间
+ * 2. 同一条目的列发生变化(布局管理器重新分配列)时根据全部记录重新计算每列首尾条目
+ * 3. 列表插入/删除条目时平移记录的position, 不需要重新布局全部条目
+ * 4. 首尾窗口内的条目边缘状态发生变化时记录为需要刷新的范围
+ */
+internal class StaggeredSpanTable {
+
+    /** 每个position所在的列 + 1, 0表示未知, [FULL_SPAN]表示跨列 */
+    private var spans = IntArray(16)
+    private var size = 0
+
+    /** 每列已知的第一个/最后一个条目, -1表示未知 */
+    private var firstPositions = IntArray(0)
+    private var lastPositions = IntArray(0)
+
+    /** 边缘状态发生变化需要刷新的范围, -1表示没有 */
+    var dirtyStart = -1
+        private set
+    var dirtyEnd = -1
+        private set
+
+    fun invalidate() {
+        spans.fill(0, 0, size)
+        size = 0
+        firstPositions.fill(-1)
+        lastPositions.fill(-1)
+    }
+
+    /**
+     * 记录条目所在的列, 跨列条目属于全部列
+     * @param spanIndex 条目所在的列, 跨列条目忽略
+     */
+    fun record(position: Int, spanIndex: Int, fullSpan: Boolean, spanCount: Int, itemCount: Int) {
+        if (firstPositions.size != spanCount) {
+            firstPositions = IntArray(spanCount) { -1 }
+            lastPositions = IntArray(spanCount) { -1 }
+            invalidate()
+        }
+        val span = when {
+            fullSpan -> FULL_SPAN
+            spanIndex in 0 until spanCount -> spanIndex + 1
+            else -> return
+        }
+        if (spans.size <= position) spans = spans.copyOf(maxOf(position + 1, spans.size * 2))
+        if (size <= position) size = position + 1
+        val oldSpan = spans[position]
+        if (oldSpan == span) return
+        spans[position] = span
+        if (oldSpan != 0) {
+            // 列被重新分配, 之前记录的首尾条目可能已不属于该列
+            rebuild(spanCount, itemCount)
+        } else if (span == FULL_SPAN) {
+            for (s in 0 until spanCount) update(position, s, spanCount, itemCount)
+        } else {
+            update(position, span - 1, spanCount, itemCount)
+        }
+    }
+
+    private fun update(position: Int, span: Int, spanCount: Int, itemCount: Int) {
+        val first = firstPositions[span]
+        if (first == -1 || position < first) {
+            firstPositions[span] = position
+            // 之前的第一个条目不再靠近起始边缘
+            if (first != -1 && first < spanCount) markDirty(first)
+        }
+        val last = lastPositions[span]
+        if (last == -1 || position > last) {
+            lastPositions[span] = position
+            if (last != -1 && last >= itemCount - spanCount) markDirty(last)
+        }
+    }
+
+    /**
+     * 根据全部记录重新计算每列首尾条目, 首尾窗口内的条目都需要刷新
+     */
+    private fun rebuild(spanCount: Int, itemCount: Int) {
+        recompute()
+        if (itemCount > 0) {
+            markDirty(0)
+            markDirty(minOf(spanCount, itemCount) - 1)
+            markDirty(maxOf(0, itemCount - spanCount))
+            markDirty(itemCount - 1)
+        }
+    }
+
+    /** 根据全部记录重新计算每列首尾条目 */
+    private fun recompute() {
+        firstPositions.fill(-1)
+        lastPositions.fill(-1)
+        for (position in 0 until size) {
+            when (val span = spans[position]) {
+                0 -> continue
+                FULL_SPAN -> for (s in firstPositions.indices) recompute(position, s)
+                else -> recompute(position, span - 1)
+            }
+        }
+    }
+
+    private fun recompute(position: Int, span: Int) {
+        if (firstPositions[span] == -1) firstPositions[span] = position
+        lastPositions[span] = position
+    }
+
+    /** 条目是否为所在列已知的第一个条目, 跨列条目需要是全部列的第一个条目 */
+    fun isFirst(position: Int, spanIndex: Int, fullSpan: Boolean): Boolean {
+        if (!fullSpan) return spanIndex !in firstPositions.indices || firstPositions[spanIndex] == position
+        for (first in firstPositions) if (first != -1 && first < position) return false
+        return true
+    }
+
+    /** 条目是否为所在列已知的最后一个条目, 跨列条目需要是全部列的最后一个条目 */
+    fun isLast(position: Int, spanIndex: Int, fullSpan: Boolean): Boolean {
+        if (!fullSpan) return spanIndex !in lastPositions.indices || lastPositions[spanIndex] == position
+        for (last in lastPositions) if (last > position) return false
+        return true
+    }
+
+    fun clearDirty() {
+        dirtyStart = -1
+        dirtyEnd = -1
+    }
+
+    private fun markDirty(position: Int) {
+        if (dirtyStart == -1 || position < dirtyStart) dirtyStart = position
+        if (position > dirtyEnd) dirtyEnd = position
+    }
+
+    //<editor-fold desc="平移">
+
+    /**
+     * 在[position]插入[count]个条目, 大于等于[position]的记录都会向后平移[count]
+     */
+    fun insert(position: Int, count: Int) {
+        if (position < size) {
+            if (spans.size < size + count) spans = spans.copyOf(maxOf(size + count, spans.size * 2))
+            spans.copyInto(spans, position + count, position, size)
+            spans.fill(0, position, position + count)
+            size += count
+        }
+        offset(firstPositions, position, count)
+        offset(lastPositions, position, count)
+        clearDirty()
+    }
+
+    /**
+     * 删除[position]开始的[count]个条目, 被删除的记录变为未知, 之后的记录都会向前平移[count]
+     */
+    fun delete(position: Int, count: Int) {
+        if (position < size) {
+            val end = minOf(position + count, size)
+            spans.copyInto(spans, position, end, size)
+            spans.fill(0, size - (end - position), size)
+            size -= end - position
+        }
+        // 删除的条目是某列首尾条目时从剩余记录中重新查找
+        if (delete(firstPositions, position, count) or delete(lastPositions, position, count)) recompute()
+        clearDirty()
+    }
+
+    private fun offset(positions: IntArray, position: Int, count: Int) {
+        for (span in positions.indices) {
+            if (positions[span] >= position) positions[span] += count
+        }
+    }
+
+    /**
+     * @return 是否删除了记录
+     */
+    private fun delete(positions: IntArray, position: Int, count: Int): Boolean {
+        val end = position + count
+        var deleted = false
+        for (span in positions.indices) {
+            val p = positions[span]
+            if (p >= end) {
+                positions[span] = p - count
+            } else if (p >= position) {
+                positions[span] = -1
+                deleted = true
+            }
+        }
+        return deleted
+    }
+    //</editor-fold>
+
+    private companion object {
+        const val FULL_SPAN = -1
+    }
+}
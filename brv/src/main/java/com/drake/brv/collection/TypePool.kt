@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.collection
+
+/**
+ * 类型池, 内容发生变化时回调[onChanged]用于清除已解析的类型缓存
+ */
+internal class TypePool(
+    private val onChanged: () -> Unit
+) : java.util.LinkedHashMap<Class<*>, Any.(Int) -> Int>() {
+
+    override fun put(key: Class<*>, value: Any.(Int) -> Int): (Any.(Int) -> Int)? {
+        onChanged()
+        return super.put(key, value)
+    }
+
+    override fun putAll(from: Map<out Class<*>, Any.(Int) -> Int>) {
+        onChanged()
+        super.putAll(from)
+    }
+
+    override fun remove(key: Class<*>): (Any.(Int) -> Int)? {
+        onChanged()
+        return super.remove(key)
+    }
+
+    override fun clear() {
+        onChanged()
+        super.clear()
+    }
+}
+
+/**
+ * 固定布局的类型, 解析时直接读取[layout]而无需调用函数
+ */
+@PublishedApi
+internal class LayoutType(val layout: Int) : (Any, Int) -> Int {
+    override fun invoke(model: Any, position: Int): Int = layout
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.item
+
+/**
+ * 数据模型的内容版本, ViewHolder已绑定同一个数据模型的相同版本并且位置未变时跳过重复绑定
+ * 即不会再执行onBindViewHolders/[ItemBind.onBind]/onBind以及DataBinding的setVariable/executePendingBindings
+ *
+ * 适用于notifyItemRangeChanged/notifyDataSetChanged等全量刷新时大部分条目内容并未变化的场景
+ * 1. 修改影响界面显示的字段时必须同时改变[itemVersion], 例如递增或者使用内容哈希值
+ * 2. 使用DataBinding的可观察字段(ObservableField/notifyChange)更新界面不受影响
+ */
+interface ItemVersion {
+
+    /** 内容版本, 内容变化时改变该值 */
+    val itemVersion: Long
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.listener
+
+import java.util.concurrent.CancellationException
+
+/**
+ * 对比数据期间检查是否被取消, 被取消时抛出[CancellationException]中断对比
+ * @param cancelled 是否已取消
+ */
+internal class CancellableDifferCallback(
+    val callback: ItemDifferCallback,
+    private val cancelled: () -> Boolean
+) : ItemDifferCallback by callback, ItemHashCallback {
+
+    override fun areItemsTheSame(oldItem: Any, newItem: Any): Boolean {
+        if (cancelled()) throw CancellationException()
+        return callback.areItemsTheSame(oldItem, newItem)
+    }
+
+    override fun getItemHash(item: Any): Int {
+        if (cancelled()) throw CancellationException()
+        return callback.itemHashOf(item)
+    }
+}
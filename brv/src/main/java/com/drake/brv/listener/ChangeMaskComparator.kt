@@ -16,23 +16,16 @@
 
 package com.drake.brv.listener
 
-import android.view.View
+/**
+ * 比较数据模型的每个字段, 由[com.drake.brv.annotaion.ChangeMask]注解在编译时生成
+ */
+interface ChangeMaskComparator<T> {
 
+    /** 比较的数据模型类型 */
+    val modelClass: Class<T>
 
-internal fun View.throttleClick(period: Long = 500, block: View.() -> Unit) {
-    setOnClickListener(ThrottleClickListener(period, block))
+    /**
+     * @return 发生变化的字段掩码, 0表示全部字段相等
+     */
+    fun changedFields(oldItem: T, newItem: T): Long
 }
-
-private class ThrottleClickListener(private val period: Long = 500, private var block: View.() -> Unit) :
-        View.OnClickListener {
-
-    private var lastTime: Long = 0
-
-    override fun onClick(v: View) {
-        val currentTime = System.currentTimeMillis()
-        if (currentTime - lastTime > period) {
-            lastTime = currentTime
-            block(v)
-        }
-    }
-}
\ No newline at end of file
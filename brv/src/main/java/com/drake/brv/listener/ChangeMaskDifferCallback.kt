@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.listener
+
+import com.drake.brv.item.ItemStableId
+import java.util.*
+
+/**
+ * 使用生成的[ChangeMaskComparator]比较数据内容, 内容变化时返回变化字段的掩码[PayloadMask]作为payload
+ * 即[com.drake.brv.BindingAdapter.onPayload]只需更新掩码对应的视图, 同一条目的多个掩码会合并
+ *
+ * 没有对应比较器的数据模型按[ItemDifferCallback]默认实现比较
+ * 实现[ItemStableId]的数据模型按ID判断是否为同一条目, 否则使用[equals]. 数据类(data class)内容变化时[equals]也会变化, 请实现[ItemStableId]或者重写[areItemsTheSame]
+ * 同时实现了[ItemHashCallback], 重写[areItemsTheSame]时请同时重写[getItemHash]
+ *
+ * ```
+ * itemDifferCallback = ChangeMaskDifferCallback(UserModel_ChangeMask.INSTANCE)
+ * ```
+ */
+open class ChangeMaskDifferCallback(vararg comparators: ChangeMaskComparator<*>) : ItemDifferCallback, ItemHashCallback {
+
+    private val comparators = IdentityHashMap<Class<*>, ChangeMaskComparator<Any>>().apply {
+        @Suppress("UNCHECKED_CAST")
+        comparators.forEach { put(it.modelClass, it as ChangeMaskComparator<Any>) }
+    }
+
+    override fun areItemsTheSame(oldItem: Any, newItem: Any): Boolean {
+        return if (oldItem is ItemStableId && newItem is ItemStableId) {
+            oldItem.getItemId() == newItem.getItemId()
+        } else super.areItemsTheSame(oldItem, newItem)
+    }
+
+    override fun getItemHash(item: Any): Int = stableItemHash(item)
+
+    override fun areContentsTheSame(oldItem: Any, newItem: Any): Boolean {
+        val comparator = findComparator(oldItem, newItem) ?: return super.areContentsTheSame(oldItem, newItem)
+        return comparator.changedFields(oldItem, newItem) == 0L
+    }
+
+    override fun getChangePayload(oldItem: Any, newItem: Any): Any? {
+        val comparator = findComparator(oldItem, newItem) ?: return null
+        val mask = comparator.changedFields(oldItem, newItem)
+        return if (mask == 0L) null else PayloadMask(mask)
+    }
+
+    private fun findComparator(oldItem: Any, newItem: Any): ChangeMaskComparator<Any>? {
+        if (oldItem.javaClass !== newItem.javaClass) return null
+        return comparators[oldItem.javaClass]
+    }
+}
@@ -34,8 +34,9 @@ open class DefaultItemTouchCallback : ItemTouchHelper.Callback() {
     override fun onSwiped(viewHolder: RecyclerView.ViewHolder, direction: Int) {
         val adapter = viewHolder.bindingAdapter as? BindingAdapter
         val layoutPosition = viewHolder.layoutPosition
-        adapter?.notifyItemRemoved(layoutPosition)
+        adapter?.checkModelsMutable()
         (adapter?.models as ArrayList).removeAt(layoutPosition)
+        adapter?.updateCallback?.onRemoved(layoutPosition, 1)
     }
 
     /**
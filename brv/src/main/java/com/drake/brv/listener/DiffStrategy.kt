@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.listener
+
+import androidx.recyclerview.widget.DiffUtil
+import androidx.recyclerview.widget.ListUpdateCallback
+
+/**
+ * 对比数据的算法, 计算新旧数据之间的差异
+ * @see com.drake.brv.BindingAdapter.diffStrategy
+ */
+interface DiffStrategy {
+
+    /**
+     * 计算新旧数据的差异, 可能运行在子线程
+     * @param oldModels 旧的数据
+     * @param newModels 新的数据
+     * @param callback 对比数据接口
+     * @param detectMoves 是否对比Item的移动
+     * @return 对比结果, 在主线程分发
+     */
+    fun calculateDiff(
+        oldModels: List<Any?>,
+        newModels: List<Any?>,
+        callback: ItemDifferCallback,
+        detectMoves: Boolean
+    ): DifferResult
+}
+
+/**
+ * 对比数据的结果
+ */
+fun interface DifferResult {
+
+    /** 将数据差异转换为增删改移的操作 */
+    fun dispatchUpdatesTo(updateCallback: ListUpdateCallback)
+}
+
+/**
+ * 使用[DiffUtil]对比数据(Myers算法), 动画最精确, 但是耗时和内存为O(N + D²), D为差异数量
+ */
+object MyersDiffStrategy : DiffStrategy {
+
+    override fun calculateDiff(
+        oldModels: List<Any?>,
+        newModels: List<Any?>,
+        callback: ItemDifferCallback,
+        detectMoves: Boolean
+    ): DifferResult {
+        val diffResult = DiffUtil.calculateDiff(ProxyDiffCallback(newModels, oldModels, callback), detectMoves)
+        return DifferResult { diffResult.dispatchUpdatesTo(it) }
+    }
+}
+
+/**
+ * 根据数据量自动选择对比算法
+ * [HeckelDiffStrategy]通过哈希值匹配相同条目, 只有对比接口同时实现[ItemHashCallback]时才会使用, 否则始终使用[MyersDiffStrategy]
+ * @param threshold 新旧数据总数量超过该值时使用[HeckelDiffStrategy], 否则使用[MyersDiffStrategy]
+ */
+class AutoDiffStrategy(private val threshold: Int = 5000) : DiffStrategy {
+
+    override fun calculateDiff(
+        oldModels: List<Any?>,
+        newModels: List<Any?>,
+        callback: ItemDifferCallback,
+        detectMoves: Boolean
+    ): DifferResult {
+        val strategy = if (callback.hasItemHash && oldModels.size + newModels.size > threshold) {
+            HeckelDiffStrategy
+        } else MyersDiffStrategy
+        return strategy.calculateDiff(oldModels, newModels, callback, detectMoves)
+    }
+}
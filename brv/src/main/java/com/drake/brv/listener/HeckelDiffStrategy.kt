@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.listener
+
+import androidx.recyclerview.widget.BatchingListUpdateCallback
+
+/**
+ * 基于哈希匹配的对比算法(Heckel), 适合数据量很大且差异很多的列表
+ *
+ * 1. 通过[ItemHashCallback.getItemHash]查找新旧数据中相同的条目, 耗时O(N), 没有实现[ItemHashCallback]时使用[hashCode]
+ * 2. 对相同条目的位置求最长递增子序列, 子序列之外的条目才会被移动, 耗时O(N log N)
+ *
+ * 相比[MyersDiffStrategy]不会因为差异数量增多而急剧变慢, 但是存在重复数据时产生的动画可能不是最少的增删操作
+ */
+object HeckelDiffStrategy : DiffStrategy {
+
+    private const val INSERT = 0
+    private const val REMOVE = 1
+    private const val MOVE = 2
+    private const val CHANGE = 3
+
+    override fun calculateDiff(
+        oldModels: List<Any?>,
+        newModels: List<Any?>,
+        callback: ItemDifferCallback,
+        detectMoves: Boolean
+    ): DifferResult {
+        val oldSize = oldModels.size
+        val newSize = newModels.size
+        val oldToNew = IntArray(oldSize) { -1 }
+        val newToOld = IntArray(newSize) { -1 }
+
+        // 相同哈希值的旧条目按位置串成链表
+        val heads = HashMap<Int, Int>(oldSize * 4 / 3 + 1)
+        val next = IntArray(oldSize)
+        for (oldPosition in oldSize - 1 downTo 0) {
+            val hash = hashOf(oldModels[oldPosition], callback)
+            next[oldPosition] = heads.put(hash, oldPosition) ?: -1
+        }
+        for (newPosition in 0 until newSize) {
+            val newItem = newModels[newPosition]
+            val hash = hashOf(newItem, callback)
+            var oldPosition = heads[hash] ?: continue
+            // 跳过链表头部已匹配的条目, 避免大量重复数据时反复遍历
+            while (oldPosition != -1 && oldToNew[oldPosition] != -1) oldPosition = next[oldPosition]
+            if (oldPosition == -1) {
+                heads.remove(hash)
+                continue
+            }
+            heads[hash] = oldPosition
+            while (oldPosition != -1) {
+                if (oldToNew[oldPosition] == -1 && areItemsTheSame(oldModels[oldPosition], newItem, callback)) {
+                    oldToNew[oldPosition] = newPosition
+                    newToOld[newPosition] = oldPosition
+                    break
+                }
+                oldPosition = next[oldPosition]
+            }
+        }
+
+        // 最长递增子序列中的条目保持不动, 其余相同条目需要移动
+        val stay = longestIncreasing(newToOld, oldSize)
+        if (!detectMoves) {
+            for (newPosition in 0 until newSize) {
+                val oldPosition = newToOld[newPosition]
+                if (oldPosition != -1 && !stay[oldPosition]) {
+                    oldToNew[oldPosition] = -1
+                    newToOld[newPosition] = -1
+                }
+            }
+        }
+
+        val operations = Operations()
+        for (oldPosition in oldSize - 1 downTo 0) {
+            if (oldToNew[oldPosition] == -1) operations.add(REMOVE, oldPosition, 0)
+        }
+        moveAndInsert(oldToNew, newToOld, stay, operations)
+        for (newPosition in 0 until newSize) {
+            val oldPosition = newToOld[newPosition]
+            if (oldPosition == -1) continue
+            val oldItem = oldModels[oldPosition]
+            val newItem = newModels[newPosition]
+            val same = if (oldItem != null && newItem != null) {
+                callback.areContentsTheSame(oldItem, newItem)
+            } else oldItem == null && newItem == null
+            if (!same) operations.add(CHANGE, newPosition, oldPosition)
+        }
+
+        return DifferResult { updateCallback ->
+            val batching = BatchingListUpdateCallback(updateCallback)
+            operations.forEach { type, first, second ->
+                when (type) {
+                    INSERT -> batching.onInserted(first, 1)
+                    REMOVE -> batching.onRemoved(first, 1)
+                    MOVE -> batching.onMoved(first, second)
+                    CHANGE -> {
+                        val oldItem = oldModels[second]
+                        val newItem = newModels[first]
+                        val payload = if (oldItem != null && newItem != null) {
+                            callback.getChangePayload(oldItem, newItem)
+                        } else null
+                        batching.onChanged(first, 1, payload)
+                    }
+                }
+            }
+            batching.dispatchLastEvent()
+        }
+    }
+
+    /**
+     * 删除以后剩余的旧条目保持原有顺序, 按新位置依次将需要移动的条目和新增条目放到前一个新条目之后
+     * 每个条目的最终顺序预先分配一个槽位, 通过树状数组统计槽位之前的条目数量得到当前位置
+     */
+    private fun moveAndInsert(oldToNew: IntArray, newToOld: IntArray, stay: BooleanArray, operations: Operations) {
+        val oldSize = oldToNew.size
+        val newSize = newToOld.size
+
+        // 保留的旧条目按原有顺序编号
+        val keptIndex = IntArray(oldSize)
+        var keptCount = 0
+        for (oldPosition in 0 until oldSize) {
+            if (oldToNew[oldPosition] != -1) keptIndex[oldPosition] = keptCount++
+        }
+
+        // 统计每个不动条目之后跟随的条目数量, 列表开头的跟随条目以-1表示
+        val followCount = IntArray(keptCount)
+        var headFollowCount = 0
+        val followOffset = IntArray(newSize)
+        val anchor = IntArray(newSize)
+        var currentAnchor = -1
+        for (newPosition in 0 until newSize) {
+            val oldPosition = newToOld[newPosition]
+            if (oldPosition != -1 && stay[oldPosition]) {
+                currentAnchor = keptIndex[oldPosition]
+                continue
+            }
+            anchor[newPosition] = currentAnchor
+            followOffset[newPosition] = if (currentAnchor == -1) headFollowCount++ else followCount[currentAnchor]++
+        }
+
+        val base = IntArray(keptCount)
+        var slotCount = headFollowCount
+        for (index in 0 until keptCount) {
+            base[index] = slotCount
+            slotCount += 1 + followCount[index]
+        }
+
+        val tree = FenwickTree(slotCount)
+        for (index in 0 until keptCount) tree.add(base[index], 1)
+        for (newPosition in 0 until newSize) {
+            val oldPosition = newToOld[newPosition]
+            if (oldPosition != -1 && stay[oldPosition]) continue
+            val anchorIndex = anchor[newPosition]
+            val slot = if (anchorIndex == -1) followOffset[newPosition] else base[anchorIndex] + 1 + followOffset[newPosition]
+            if (oldPosition == -1) {
+                operations.add(INSERT, tree.sum(slot), 0)
+            } else {
+                val oldSlot = base[keptIndex[oldPosition]]
+                val fromPosition = tree.sum(oldSlot)
+                tree.add(oldSlot, -1)
+                val toPosition = tree.sum(slot)
+                if (fromPosition != toPosition) operations.add(MOVE, fromPosition, toPosition)
+            }
+            tree.add(slot, 1)
+        }
+    }
+
+    /**
+     * 按新位置顺序求已匹配旧位置的最长递增子序列
+     * @return 旧位置是否属于该子序列
+     */
+    private fun longestIncreasing(newToOld: IntArray, oldSize: Int): BooleanArray {
+        val stay = BooleanArray(oldSize)
+        val tails = IntArray(newToOld.size)
+        val previous = IntArray(newToOld.size)
+        var length = 0
+        for (newPosition in newToOld.indices) {
+            val oldPosition = newToOld[newPosition]
+            if (oldPosition == -1) continue
+            var low = 0
+            var high = length
+            while (low < high) {
+                val middle = (low + high) ushr 1
+                if (newToOld[tails[middle]] < oldPosition) low = middle + 1 else high = middle
+            }
+            previous[newPosition] = if (low > 0) tails[low - 1] else -1
+            tails[low] = newPosition
+            if (low == length) length++
+        }
+        var newPosition = if (length > 0) tails[length - 1] else -1
+        while (newPosition != -1) {
+            stay[newToOld[newPosition]] = true
+            newPosition = previous[newPosition]
+        }
+        return stay
+    }
+
+    private fun hashOf(item: Any?, callback: ItemDifferCallback): Int {
+        return if (item == null) 0 else callback.itemHashOf(item)
+    }
+
+    private fun areItemsTheSame(oldItem: Any?, newItem: Any?, callback: ItemDifferCallback): Boolean {
+        return if (oldItem != null && newItem != null) {
+            callback.areItemsTheSame(oldItem, newItem)
+        } else oldItem == null && newItem == null
+    }
+
+    /** 按顺序记录的列表操作, 每个操作占用3个int */
+    private class Operations {
+        private var values = IntArray(48)
+        private var size = 0
+
+        fun add(type: Int, first: Int, second: Int) {
+            if (size + 3 > values.size) values = values.copyOf(values.size * 2)
+            values[size++] = type
+            values[size++] = first
+            values[size++] = second
+        }
+
+        inline fun forEach(block: (type: Int, first: Int, second: Int) -> Unit) {
+            var index = 0
+            while (index < size) {
+                block(values[index], values[index + 1], values[index + 2])
+                index += 3
+            }
+        }
+    }
+
+    /** 树状数组, 统计槽位之前被占用的数量 */
+    private class FenwickTree(size: Int) {
+        private val tree = IntArray(size + 1)
+
+        fun add(slot: Int, delta: Int) {
+            var index = slot + 1
+            while (index < tree.size) {
+                tree[index] += delta
+                index += index and -index
+            }
+        }
+
+        /** [0, slot)范围内被占用的数量 */
+        fun sum(slot: Int): Int {
+            var index = slot
+            var sum = 0
+            while (index > 0) {
+                sum += tree[index]
+                index -= index and -index
+            }
+            return sum
+        }
+    }
+}
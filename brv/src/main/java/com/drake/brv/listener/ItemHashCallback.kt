@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.listener
+
+import com.drake.brv.item.ItemStableId
+
+/**
+ * 数据的哈希值, [HeckelDiffStrategy]通过哈希值查找相同的数据
+ * 与[ItemDifferCallback]一起实现, [ItemDifferCallback.areItemsTheSame]返回true的两个数据必须返回相同的哈希值
+ *
+ * 只有[ItemDifferCallback]同时实现该接口时[AutoDiffStrategy]才会在数据量很大时使用[HeckelDiffStrategy]
+ *
+ * ```
+ * itemDifferCallback = object : ItemDifferCallback, ItemHashCallback {
+ *     override fun areItemsTheSame(oldItem: Any, newItem: Any) = (oldItem as UserModel).id == (newItem as UserModel).id
+ *     override fun getItemHash(item: Any) = (item as UserModel).id.hashCode()
+ * }
+ * ```
+ */
+interface ItemHashCallback {
+
+    /**
+     * @return 数据的哈希值
+     */
+    fun getItemHash(item: Any): Int
+}
+
+/**
+ * 是否可以通过哈希值匹配相同的数据, 即[ItemHashCallback]
+ */
+internal val ItemDifferCallback.hasItemHash: Boolean
+    get() = if (this is CancellableDifferCallback) callback is ItemHashCallback else this is ItemHashCallback
+
+/**
+ * 数据的哈希值, 没有实现[ItemHashCallback]时使用[hashCode], 与默认的[ItemDifferCallback.areItemsTheSame]一致
+ */
+internal fun ItemDifferCallback.itemHashOf(item: Any): Int {
+    return if (this is ItemHashCallback) getItemHash(item) else item.hashCode()
+}
+
+/**
+ * 实现[ItemStableId]时返回其ID的哈希值, 否则返回[hashCode]
+ */
+internal fun stableItemHash(item: Any): Int {
+    return if (item is ItemStableId) item.getItemId().hashCode() else item.hashCode()
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.listener
+
+/**
+ * 可合并的payload, 同一条目在一次绑定前收到的多个同类型payload会合并为一个再回调[com.drake.brv.BindingAdapter.onPayload]
+ * 例如记录变化字段的集合, 合并后为多次变化字段的并集
+ * @param T 即实现类本身
+ */
+interface MergeablePayload<T> {
+
+    /**
+     * @param other 之后发送的payload
+     * @return 合并后的payload
+     */
+    fun merge(other: T): T
+}
+
+/**
+ * 依次合并同一次绑定的多个payload, 相邻且可以合并的payload合并为一个
+ * 1. 同一类型的[MergeablePayload]通过[MergeablePayload.merge]合并, 例如[PayloadMask]
+ * 2. 连续相等的payload只保留一个, 其他payload(包括Int/Long)原样保留
+ *
+ * @param target 合并结果按顺序添加到该集合
+ */
+internal fun mergePayloads(payloads: List<Any>, target: MutableList<Any>) {
+    var merged: Any? = null
+    for (payload in payloads) {
+        if (merged == null) {
+            merged = payload
+            continue
+        }
+        val result = merge(merged, payload)
+        if (result == null) {
+            target.add(merged)
+            merged = payload
+        } else merged = result
+    }
+    if (merged != null) target.add(merged)
+}
+
+@Suppress("UNCHECKED_CAST")
+private fun merge(payload: Any, other: Any): Any? = when {
+    payload is MergeablePayload<*> && payload.javaClass == other.javaClass -> {
+        (payload as MergeablePayload<Any>).merge(other)
+    }
+    payload == other -> payload
+    else -> null
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.listener
+
+/**
+ * 变化字段掩码的payload, 同一条目的多个掩码按位或合并为变化字段的并集
+ * 普通的Int/Long payload不会合并, 需要合并掩码时请使用该类型
+ *
+ * ```
+ * rv.bindingAdapter.notifyItemChanged(0, PayloadMask(CHANGED_NAME))
+ * ```
+ *
+ * @param bits 变化字段的掩码
+ */
+data class PayloadMask(val bits: Long) : MergeablePayload<PayloadMask> {
+
+    /** 是否包含[mask]中的任一字段 */
+    fun has(mask: Long): Boolean = bits and mask != 0L
+
+    override fun merge(other: PayloadMask): PayloadMask {
+        return if (other.bits or bits == bits) this else PayloadMask(bits or other.bits)
+    }
+}
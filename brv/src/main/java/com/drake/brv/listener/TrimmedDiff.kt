@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.listener
+
+import androidx.recyclerview.widget.BatchingListUpdateCallback
+import androidx.recyclerview.widget.ListUpdateCallback
+
+/**
+ * 对比前先去除新旧数据相同的头部和尾部, 只有中间剩余的部分才交给[DiffStrategy]对比
+ *
+ * 1. 末尾追加/头部插入数据时直接插入, 无需对比
+ * 2. 删除连续数据时直接删除, 无需对比
+ * 3. 只有内容变化的条目直接更新
+ */
+internal fun DiffStrategy.calculateTrimmedDiff(
+    oldModels: List<Any?>,
+    newModels: List<Any?>,
+    callback: ItemDifferCallback,
+    detectMoves: Boolean
+): DifferResult {
+    val oldSize = oldModels.size
+    val newSize = newModels.size
+    val minSize = minOf(oldSize, newSize)
+    var start = 0
+    while (start < minSize && areItemsTheSame(oldModels[start], newModels[start], callback)) start++
+    var oldEnd = oldSize
+    var newEnd = newSize
+    while (oldEnd > start && newEnd > start && areItemsTheSame(oldModels[oldEnd - 1], newModels[newEnd - 1], callback)) {
+        oldEnd--
+        newEnd--
+    }
+    if (start == 0 && oldEnd == oldSize && newEnd == newSize) {
+        return calculateDiff(oldModels, newModels, callback, detectMoves)
+    }
+
+    // 头尾相同的条目中内容发生变化的新位置
+    var changed = IntArray(0)
+    var changedCount = 0
+    fun checkContents(oldPosition: Int, newPosition: Int) {
+        if (areContentsTheSame(oldModels[oldPosition], newModels[newPosition], callback)) return
+        if (changedCount == changed.size) changed = changed.copyOf(maxOf(8, changedCount * 2))
+        changed[changedCount++] = newPosition
+    }
+    for (position in 0 until start) checkContents(position, position)
+    for (newPosition in newEnd until newSize) checkContents(newPosition - newEnd + oldEnd, newPosition)
+
+    // 中间部分的对比结果都是相对于start的位置
+    val middleResult = when {
+        oldEnd == start && newEnd == start -> null
+        oldEnd == start -> DifferResult { it.onInserted(0, newEnd - start) }
+        newEnd == start -> DifferResult { it.onRemoved(0, oldEnd - start) }
+        else -> calculateDiff(oldModels.subList(start, oldEnd), newModels.subList(start, newEnd), callback, detectMoves)
+    }
+    return DifferResult { updateCallback ->
+        val batching = BatchingListUpdateCallback(updateCallback)
+        middleResult?.dispatchUpdatesTo(OffsetListUpdateCallback(batching, start))
+        for (index in 0 until changedCount) {
+            val newPosition = changed[index]
+            val oldPosition = if (newPosition < start) newPosition else newPosition - newEnd + oldEnd
+            val oldItem = oldModels[oldPosition]
+            val newItem = newModels[newPosition]
+            val payload = if (oldItem != null && newItem != null) callback.getChangePayload(oldItem, newItem) else null
+            batching.onChanged(newPosition, 1, payload)
+        }
+        batching.dispatchLastEvent()
+    }
+}
+
+private fun areItemsTheSame(oldItem: Any?, newItem: Any?, callback: ItemDifferCallback): Boolean {
+    return if (oldItem != null && newItem != null) {
+        callback.areItemsTheSame(oldItem, newItem)
+    } else oldItem == null && newItem == null
+}
+
+private fun areContentsTheSame(oldItem: Any?, newItem: Any?, callback: ItemDifferCallback): Boolean {
+    return if (oldItem != null && newItem != null) {
+        callback.areContentsTheSame(oldItem, newItem)
+    } else oldItem == null && newItem == null
+}
+
+/**
+ * 将中间部分的对比结果偏移到完整列表中的位置
+ */
+private class OffsetListUpdateCallback(
+    private val callback: ListUpdateCallback,
+    private val offset: Int
+) : ListUpdateCallback {
+
+    override fun onInserted(position: Int, count: Int) {
+        callback.onInserted(position + offset, count)
+    }
+
+    override fun onRemoved(position: Int, count: Int) {
+        callback.onRemoved(position + offset, count)
+    }
+
+    override fun onMoved(fromPosition: Int, toPosition: Int) {
+        callback.onMoved(fromPosition + offset, toPosition + offset)
+    }
+
+    override fun onChanged(position: Int, count: Int, payload: Any?) {
+        callback.onChanged(position + offset, count, payload)
+    }
+}
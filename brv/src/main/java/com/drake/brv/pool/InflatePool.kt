@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.pool
+
+import android.os.Handler
+import android.os.Looper
+import android.util.SparseArray
+import android.util.SparseIntArray
+import android.view.LayoutInflater
+import android.view.View
+import android.view.ViewGroup
+import com.drake.brv.utils.BRV
+import java.util.ArrayDeque
+
+/**
+ * 在子线程预先创建布局视图, 主线程创建ViewHolder时直接取出使用, 取出后在子线程补充
+ * 除[BRV.inflateExecutor]中的创建过程以外全部在主线程调用
+ */
+internal class InflatePool {
+
+    /** 每个布局需要保持的预创建数量 */
+    private val targets = SparseIntArray()
+
+    /** 每个布局正在创建的数量 */
+    private val inflating = SparseIntArray()
+
+    /** 已创建完成的视图 */
+    private val ready = SparseArray<ArrayDeque<View>>()
+
+    /** 无法在子线程创建的布局(例如包含创建Handler的View), 只能同步创建 */
+    private val syncLayouts = HashSet<Int>()
+
+    private var parent: ViewGroup? = null
+
+    /** 每次[detach]递增, 用于丢弃之前提交的创建结果 */
+    private var generation = 0
+    private var inflater: LayoutInflater? = null
+    private val handler = Handler(Looper.getMainLooper())
+
+    /**
+     * 开始为[parent]预创建视图, 视图的LayoutParams由[parent]生成
+     */
+    fun attach(parent: ViewGroup) {
+        if (this.parent === parent) return
+        detach()
+        this.parent = parent
+        inflater = LayoutInflater.from(parent.context).cloneInContext(parent.context)
+        for (index in 0 until targets.size()) fill(targets.keyAt(index))
+    }
+
+    /**
+     * 停止预创建并清空已创建的视图, 避免持有已销毁的Context
+     */
+    fun detach() {
+        generation++
+        parent = null
+        inflater = null
+        ready.clear()
+        inflating.clear()
+    }
+
+    /**
+     * 保持[layout]有[count]个预创建的视图
+     */
+    fun setTarget(layout: Int, count: Int) {
+        targets.put(layout, count)
+        fill(layout)
+    }
+
+    /**
+     * 取出预创建的视图并在子线程补充
+     * @return null表示未命中, 需要同步创建
+     */
+    fun obtain(layout: Int): View? {
+        val view = ready[layout]?.pollFirst()
+        if (targets.indexOfKey(layout) >= 0) fill(layout)
+        return view
+    }
+
+    private fun fill(layout: Int) {
+        val parent = parent ?: return
+        val inflater = inflater ?: return
+        if (layout in syncLayouts) return
+        val generation = generation
+        var missing = targets.get(layout) - (ready[layout]?.size ?: 0) - inflating.get(layout)
+        while (missing-- > 0) {
+            inflating.put(layout, inflating.get(layout) + 1)
+            BRV.inflateExecutor.execute {
+                val view = try {
+                    inflater.inflate(layout, parent, false)
+                } catch (e: Throwable) {
+                    null
+                }
+                handler.post { onInflated(generation, layout, view) }
+            }
+        }
+    }
+
+    private fun onInflated(generation: Int, layout: Int, view: View?) {
+        // 期间已经切换列表或者被清空, 丢弃创建结果
+        if (generation != this.generation) return
+        inflating.put(layout, inflating.get(layout) - 1)
+        if (view == null) {
+            syncLayouts.add(layout)
+            return
+        }
+        val views = ready[layout] ?: ArrayDeque<View>().also { ready.put(layout, it) }
+        views.addLast(view)
+    }
+}
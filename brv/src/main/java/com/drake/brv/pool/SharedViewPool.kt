@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.pool
+
+import android.app.Activity
+import android.app.Application
+import android.content.ComponentCallbacks2
+import android.content.Context
+import android.content.ContextWrapper
+import android.content.res.Configuration
+import android.os.Bundle
+import android.util.SparseBooleanArray
+import androidx.recyclerview.widget.RecyclerView
+
+/**
+ * 进程内共享的复用池, 按布局(即ViewHolder类型)缓存, 相同布局的ViewHolder可以在多个列表之间复用
+ * 例如纵向列表中嵌套的多个横向列表, 或者多个页面中使用相同条目布局的列表
+ *
+ * 1. 按列表的Context区分复用池, 视图不会被其他Activity使用, Activity销毁时移除其复用池
+ * 2. 每种类型最多缓存[maxRecycledViews]个
+ * 3. 系统内存不足时清空全部复用池
+ *
+ * 通过[com.drake.brv.BindingAdapter.sharedPoolEnabled]启用, 仅在主线程调用
+ */
+object SharedViewPool : ComponentCallbacks2, Application.ActivityLifecycleCallbacks {
+
+    /** 每种类型的最大缓存数量, 自动增大的缓存数量([com.drake.brv.BindingAdapter.adaptivePoolEnabled])也不会超过该值 */
+    var maxRecycledViews = 10
+
+    private val pools = HashMap<Context, RecyclerView.RecycledViewPool>()
+    private var registered = false
+
+    /**
+     * 返回[context]对应的复用池
+     */
+    @JvmStatic
+    fun get(context: Context): RecyclerView.RecycledViewPool {
+        if (!registered) {
+            val application = context.applicationContext as? Application
+            if (application != null) {
+                application.registerComponentCallbacks(this)
+                application.registerActivityLifecycleCallbacks(this)
+                registered = true
+            }
+        }
+        return pools.getOrPut(context) { BoundedViewPool() }
+    }
+
+    /**
+     * 清空全部复用池中缓存的ViewHolder
+     */
+    @JvmStatic
+    fun clear() {
+        pools.values.forEach { it.clear() }
+    }
+
+    private fun Context.findActivity(): Activity? {
+        var context: Context? = this
+        while (context is ContextWrapper) {
+            if (context is Activity) return context
+            context = context.baseContext
+        }
+        return null
+    }
+
+    /**
+     * 限制每种类型的最大缓存数量
+     */
+    private class BoundedViewPool : RecyclerView.RecycledViewPool() {
+
+        /** 已设置缓存数量的类型 */
+        private val limited = SparseBooleanArray()
+
+        override fun setMaxRecycledViews(viewType: Int, max: Int) {
+            limited.put(viewType, true)
+            super.setMaxRecycledViews(viewType, minOf(max, maxRecycledViews))
+        }
+
+        override fun putRecycledView(scrap: RecyclerView.ViewHolder) {
+            val viewType = scrap.itemViewType
+            if (!limited.get(viewType)) setMaxRecycledViews(viewType, maxRecycledViews)
+            super.putRecycledView(scrap)
+        }
+    }
+
+    //<editor-fold desc="生命周期">
+    override fun onActivityDestroyed(activity: Activity) {
+        val iterator = pools.entries.iterator()
+        while (iterator.hasNext()) {
+            val entry = iterator.next()
+            if (entry.key.findActivity() === activity) {
+                entry.value.clear()
+                iterator.remove()
+            }
+        }
+    }
+
+    override fun onTrimMemory(level: Int) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) clear()
+    }
+
+    override fun onLowMemory() = clear()
+
+    override fun onConfigurationChanged(newConfig: Configuration) = Unit
+
+    override fun onActivityCreated(activity: Activity, savedInstanceState: Bundle?) = Unit
+
+    override fun onActivityStarted(activity: Activity) = Unit
+
+    override fun onActivityResumed(activity: Activity) = Unit
+
+    override fun onActivityPaused(activity: Activity) = Unit
+
+    override fun onActivityStopped(activity: Activity) = Unit
+
+    override fun onActivitySaveInstanceState(activity: Activity, outState: Bundle) = Unit
+    //</editor-fold>
+}
@@ -16,6 +16,11 @@
 
 package com.drake.brv.utils
 
+import java.util.concurrent.Executor
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
 object BRV {
 
     /**
@@ -36,4 +41,20 @@ object BRV {
      * @see com.drake.brv.BindingAdapter.onClick
      */
     var clickThrottle: Long = 500
-}
\ No newline at end of file
+
+    /**
+     * 后台对比数据的线程池, 最多2个线程, 空闲30秒后回收
+     * @see com.drake.brv.BindingAdapter.setDifferModelsAsync
+     */
+    var differExecutor: Executor = ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS, LinkedBlockingQueue<Runnable>()) {
+        Thread(it, "BRV-Differ").apply { isDaemon = true }
+    }.apply { allowCoreThreadTimeOut(true) }
+
+    /**
+     * 子线程预创建布局的线程池, 单线程按顺序创建
+     * @see com.drake.brv.BindingAdapter.preInflate
+     */
+    var inflateExecutor: Executor = ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, LinkedBlockingQueue<Runnable>()) {
+        Thread(it, "BRV-Inflater").apply { isDaemon = true }
+    }.apply { allowCoreThreadTimeOut(true) }
+}
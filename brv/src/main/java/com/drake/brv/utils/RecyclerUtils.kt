@@ -95,6 +95,18 @@ fun RecyclerView.setDifferModels(
     bindingAdapter.setDifferModels(newModels, detectMoves, commitCallback)
 }
 
+/**
+ * 在后台线程对比数据, 完成后在主线程刷新列表. 频繁刷新时只有最新一次对比的结果会生效
+ * @see BindingAdapter.setDifferModelsAsync
+ */
+fun RecyclerView.setDifferModelsAsync(
+    newModels: List<Any?>?,
+    detectMoves: Boolean = true,
+    commitCallback: Runnable? = null
+) {
+    bindingAdapter.setDifferModelsAsync(newModels, detectMoves, commitCallback)
+}
+
 //<editor-fold desc="配置列表">
 /**
  * 设置适配器
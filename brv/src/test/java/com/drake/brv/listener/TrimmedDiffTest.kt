@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.listener
+
+import androidx.recyclerview.widget.ListUpdateCallback
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.random.Random
+
+/**
+ * 将[calculateTrimmedDiff]和直接使用DiffUtil的对比结果分别应用到旧数据上, 两者都必须得到新数据
+ */
+class TrimmedDiffTest {
+
+    /** 只对比值, 值相同时通过版本号区分内容是否变化 */
+    private data class Item(val value: Int, val version: Int)
+
+    private val callback = object : ItemDifferCallback {
+        override fun areItemsTheSame(oldItem: Any, newItem: Any): Boolean {
+            return (oldItem as Item).value == (newItem as Item).value
+        }
+
+        override fun areContentsTheSame(oldItem: Any, newItem: Any): Boolean {
+            return oldItem == newItem
+        }
+    }
+
+    @Test
+    fun appendWithCommonPrefix() {
+        assertSameAsDiffUtil(items(0, 1), items(0, 1, 0))
+    }
+
+    @Test
+    fun removeTailWithCommonPrefix() {
+        assertSameAsDiffUtil(items(0, 0, 0, 0, 0, 0), items(0, 0))
+    }
+
+    @Test
+    fun randomLists() {
+        val random = Random(0)
+        repeat(20000) {
+            val oldModels = randomItems(random)
+            val newModels = if (random.nextBoolean()) {
+                randomItems(random)
+            } else {
+                // 大部分刷新只修改少量条目, 保证头尾相同的情况足够多
+                oldModels.toMutableList().apply {
+                    repeat(random.nextInt(3)) {
+                        when (random.nextInt(3)) {
+                            0 -> add(random.nextInt(size + 1), Item(random.nextInt(4), 0))
+                            1 -> if (isNotEmpty()) removeAt(random.nextInt(size))
+                            else -> if (isNotEmpty()) {
+                                val index = random.nextInt(size)
+                                set(index, get(index).copy(version = 1))
+                            }
+                        }
+                    }
+                }
+            }
+            assertSameAsDiffUtil(oldModels, newModels)
+        }
+    }
+
+    private fun items(vararg values: Int) = values.map { Item(it, 0) }
+
+    private fun randomItems(random: Random): List<Item> {
+        return List(random.nextInt(8)) { Item(random.nextInt(4), random.nextInt(2)) }
+    }
+
+    private fun assertSameAsDiffUtil(oldModels: List<Item>, newModels: List<Item>) {
+        for (detectMoves in booleanArrayOf(false, true)) {
+            val expected = MyersDiffStrategy.calculateDiff(oldModels, newModels, callback, detectMoves)
+            val actual = MyersDiffStrategy.calculateTrimmedDiff(oldModels, newModels, callback, detectMoves)
+            val message = "$oldModels -> $newModels, detectMoves = $detectMoves"
+            assertEquals(message, newModels, apply(expected, oldModels, newModels, message))
+            assertEquals(message, newModels, apply(actual, oldModels, newModels, message))
+        }
+    }
+
+    /** 模拟RecyclerView中的条目, 插入的条目[item]为null */
+    private class Slot(val item: Item?) {
+        var changed = false
+    }
+
+    /**
+     * 模拟RecyclerView应用对比结果, 位置越界时失败
+     * 插入的条目替换为新数据中对应位置的条目, 其余条目必须和新数据是同一条目, 内容不同时必须通知变化
+     */
+    private fun apply(result: DifferResult, oldModels: List<Item>, newModels: List<Item>, message: String): List<Item> {
+        val list = oldModels.mapTo(ArrayList()) { Slot(it) }
+        result.dispatchUpdatesTo(object : ListUpdateCallback {
+            override fun onInserted(position: Int, count: Int) {
+                assertTrue("onInserted($position, $count) of ${list.size}: $message", position in 0..list.size && count > 0)
+                repeat(count) { list.add(position, Slot(null)) }
+            }
+
+            override fun onRemoved(position: Int, count: Int) {
+                assertTrue("onRemoved($position, $count) of ${list.size}: $message", position >= 0 && count > 0 && position + count <= list.size)
+                repeat(count) { list.removeAt(position) }
+            }
+
+            override fun onMoved(fromPosition: Int, toPosition: Int) {
+                assertTrue("onMoved($fromPosition, $toPosition) of ${list.size}: $message", fromPosition in list.indices && toPosition in list.indices)
+                list.add(toPosition, list.removeAt(fromPosition))
+            }
+
+            override fun onChanged(position: Int, count: Int, payload: Any?) {
+                assertTrue("onChanged($position, $count) of ${list.size}: $message", position >= 0 && count > 0 && position + count <= list.size)
+                for (index in position until position + count) list[index].changed = true
+            }
+        })
+        assertEquals(message, newModels.size, list.size)
+        return list.mapIndexed { index, slot ->
+            val item = slot.item ?: return@mapIndexed newModels[index]
+            assertTrue("position $index keeps $item: $message", callback.areItemsTheSame(item, newModels[index]))
+            if (item != newModels[index]) assertTrue("position $index not changed: $message", slot.changed)
+            newModels[index]
+        }
+    }
+}
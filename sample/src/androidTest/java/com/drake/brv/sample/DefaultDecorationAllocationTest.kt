@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2018 Drake, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.drake.brv.sample
+
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import android.graphics.Color
+import android.graphics.Rect
+import android.os.Debug
+import android.support.test.InstrumentationRegistry
+import android.support.test.runner.AndroidJUnit4
+import android.view.View
+import android.view.ViewGroup
+import androidx.recyclerview.widget.GridLayoutManager
+import androidx.recyclerview.widget.LinearLayoutManager
+import androidx.recyclerview.widget.RecyclerView
+import androidx.recyclerview.widget.StaggeredGridLayoutManager
+import com.drake.brv.DefaultDecoration
+import com.drake.brv.annotaion.DividerOrientation
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * 分割线绘制和计算间距的过程中不应该创建对象, 统计一次绘制过程中当前线程的对象分配数量
+ */
+@RunWith(AndroidJUnit4::class)
+class DefaultDecorationAllocationTest {
+
+    @Test
+    fun linearDrawDoesNotAllocate() {
+        assertNoAllocation(LinearLayoutManager(context), DividerOrientation.HORIZONTAL)
+    }
+
+    @Test
+    fun gridDrawDoesNotAllocate() {
+        assertNoAllocation(GridLayoutManager(context, 4), DividerOrientation.GRID)
+    }
+
+    @Test
+    fun staggeredDrawDoesNotAllocate() {
+        assertNoAllocation(StaggeredGridLayoutManager(3, RecyclerView.VERTICAL), DividerOrientation.GRID)
+    }
+
+    private val context get() = InstrumentationRegistry.getTargetContext()
+
+    private fun assertNoAllocation(layoutManager: RecyclerView.LayoutManager, orientation: DividerOrientation) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync {
+            val rv = RecyclerView(context)
+            rv.layoutManager = layoutManager
+            rv.adapter = SimpleAdapter(1000)
+            val decoration = DefaultDecoration(context).apply {
+                setDivider(2)
+                setColor(Color.GRAY)
+                this.orientation = orientation
+                startVisible = true
+                endVisible = true
+            }
+            rv.addItemDecoration(decoration)
+            // 超过Integer缓存范围的position才能发现装箱
+            rv.scrollToPosition(900)
+            layout(rv)
+
+            val canvas = Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888))
+            val state = RecyclerView.State()
+            val outRect = Rect()
+            fun drawPass() {
+                for (index in 0 until rv.childCount) {
+                    decoration.getItemOffsets(outRect, rv.getChildAt(index), rv, state)
+                }
+                decoration.onDraw(canvas, rv, state)
+            }
+            // 预热阶段允许初始化缓存
+            repeat(3) { drawPass() }
+
+            @Suppress("DEPRECATION")
+            Debug.startAllocCounting()
+            try {
+                @Suppress("DEPRECATION")
+                Debug.resetThreadAllocCount()
+                drawPass()
+                @Suppress("DEPRECATION")
+                assertEquals(0, Debug.getThreadAllocCount())
+            } finally {
+                @Suppress("DEPRECATION")
+                Debug.stopAllocCounting()
+            }
+        }
+    }
+
+    private fun layout(rv: RecyclerView) {
+        rv.measure(
+            View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+            View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY)
+        )
+        rv.layout(0, 0, WIDTH, HEIGHT)
+    }
+
+    private class SimpleAdapter(private val count: Int) : RecyclerView.Adapter<RecyclerView.ViewHolder>() {
+
+        override fun onCreateViewHolder(parent: ViewGroup, viewType: Int): RecyclerView.ViewHolder {
+            val view = View(parent.context)
+            view.layoutParams = RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT)
+            return object : RecyclerView.ViewHolder(view) {}
+        }
+
+        override fun onBindViewHolder(holder: RecyclerView.ViewHolder, position: Int) = Unit
+
+        override fun getItemCount(): Int = count
+    }
+
+    companion object {
+        private const val WIDTH = 1080
+        private const val HEIGHT = 1920
+        private const val ITEM_HEIGHT = 120
+    }
+}